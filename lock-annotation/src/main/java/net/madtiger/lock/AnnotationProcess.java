@@ -89,7 +89,15 @@ public final class AnnotationProcess {
         processResultObject = jp.proceed();
       }
     } finally{
-      lockObject.unlock();
+      // 后台释放，释放失败时在后台回滚
+      if (shareLockAnnotation.asyncRelease()) {
+        SharedlockUtils.releaseInBackground(lockObject, SharedLock.DEFAULT_METHOD.equals(shareLockAnnotation.rollbackMethod()) ? null : () -> rollback(jp, shareLockAnnotation));
+      } else {
+        lockObject.unlock();
+      }
+    }
+    if (shareLockAnnotation.asyncRelease()) {
+      return processResultObject;
     }
     Object rollbackData;
     // 是否需要回滚
@@ -204,10 +212,30 @@ public final class AnnotationProcess {
     if (lock.lockedSeconds() != SharedLock.DEFAULT_INT) {
       builder.lockSeconds(lock.lockedSeconds());
     }
+    // 信号量
+    if (lock.permits() > 1) {
+      builder.permits(lock.permits());
+    }
+    // 读写锁
+    if (lock.mode() != LockMode.EXCLUSIVE) {
+      if (lock.permits() > 1) {
+        throw new IllegalArgumentException(String.format("%s 的共享锁不能同时设置 permits 和 mode", method));
+      }
+      builder.readWrite(lock.mode() == LockMode.READ ? ReadWriteMode.READ : ReadWriteMode.WRITE);
+    }
     // 锁服务
     if (!StringUtils.isEmpty(lock.provider())) {
       builder.providerName(lock.provider());
     }
+    builder.asyncRelease(lock.asyncRelease());
+    // 持有者
+    if (!StringUtils.isEmpty(lock.owner())) {
+      builder.owner(parseKeyVariables(lock.owner(), argMaps));
+    }
+    // 副本确认
+    if (lock.replicas() > 0) {
+      builder.replicas(lock.replicas(), lock.replicaTimeoutMills());
+    }
     return (CompositeSharedLock) builder.build();
   }
 
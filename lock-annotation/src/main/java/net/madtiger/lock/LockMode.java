@@ -0,0 +1,26 @@
+package net.madtiger.lock;
+
+/**
+ * 注解锁的模式
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public enum LockMode {
+
+  /**
+   * 互斥锁，{@link SharedLock#permits()} 大于 1 时是信号量
+   */
+  EXCLUSIVE,
+
+  /**
+   * 读锁，同一个 key 的读锁可以同时持有，与写锁互斥
+   */
+  READ,
+
+  /**
+   * 写锁，与同一个 key 的读锁和写锁互斥
+   */
+  WRITE
+
+}
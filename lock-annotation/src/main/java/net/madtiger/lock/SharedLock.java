@@ -50,6 +50,17 @@ public @interface SharedLock {
   int lockedSeconds() default DEFAULT_INT;
 
 
+  /**
+   * 信号量许可总数，大于 1 时同一个 key 最多允许 permits 个调用同时执行，每次调用占用一个许可
+   */
+  int permits() default 1;
+
+  /**
+   * 锁的模式，读锁、写锁需要服务提供者支持读写锁，不能和 {@link #permits()} 同时使用
+   */
+  LockMode mode() default LockMode.EXCLUSIVE;
+
+
   /**
    * 回调函数，该函数必须是当前对象的公共方法，参数也相同，不需要返回值
    */
@@ -65,6 +76,27 @@ public @interface SharedLock {
    */
   FaultPolicy faultPolicy() default FaultPolicy.AUTO;
 
+  /**
+   * 是否在后台释放锁，开启后方法执行完不等待释放完成就返回，释放失败时在后台执行回滚方法，回滚方法的返回值不再替换方法的返回值
+   */
+  boolean asyncRelease() default false;
+
+  /**
+   * 持有者标识，支持和 key 一样的 #{参数名} 变量，服务提供者开启服务端可重入时，相同持有者在其他线程、进程中嵌套调用可以直接重入，
+   * 默认由服务提供者生成
+   */
+  String owner() default "";
+
+  /**
+   * 获取成功后要求确认写入的副本数量，确认数量不足时释放并视为获取失败，默认 0 不等待，只有支持的服务提供者生效
+   */
+  int replicas() default 0;
+
+  /**
+   * 等待副本确认的超时时长，单位毫秒
+   */
+  long replicaTimeoutMills() default 100;
+
   /**
    * 默认值
    */
@@ -5,6 +5,8 @@ import static net.madtiger.lock.SharedLockConstants.PROPERTIES_PREFIX;
 import java.util.List;
 import javax.annotation.PostConstruct;
 import net.madtiger.lock.AbsSharedLockDecorator;
+import net.madtiger.lock.HashedKeyEncoder;
+import net.madtiger.lock.ISharedLockKeyEncoder;
 import net.madtiger.lock.SharedLockContextHolder;
 import net.madtiger.lock.SharedLockEnvironment;
 import net.madtiger.lock.provider.ISharedLockProvider;
@@ -26,6 +28,24 @@ public abstract class AbsSharedLockConfiguration<DepenOn> implements ISharedLock
   @Autowired
   private DepenOn depenOn;
 
+  /**
+   * 是否把 key 编码成 命名空间 + 哈希，缩短 key 的长度
+   */
+  @Value("${" + PROPERTIES_PREFIX + "key.hash:false}")
+  private boolean hashKey;
+
+  /**
+   * 哈希 key 的命名空间前缀
+   */
+  @Value("${" + PROPERTIES_PREFIX + "key.namespace:}")
+  private String keyNamespace;
+
+  /**
+   * 是否保留 编码 key -> 逻辑 key 的调试映射
+   */
+  @Value("${" + PROPERTIES_PREFIX + "key.debug:false}")
+  private boolean keyDebug;
+
   /**
    * 创建 共享锁 拦截器
    * @param context
@@ -41,6 +61,19 @@ public abstract class AbsSharedLockConfiguration<DepenOn> implements ISharedLock
     ISharedLockProvider provider = newSharedLockProvider(depenOn);
     // 全局增加 装饰者类
     SharedLockEnvironment.getInstance().addDecoratorClasses(defaultDecorators()).setDefaultProvder(provider);
+    ISharedLockKeyEncoder encoder = keyEncoder(hashKey ? new HashedKeyEncoder(keyNamespace, keyDebug) : ISharedLockKeyEncoder.IDENTITY);
+    if (encoder != ISharedLockKeyEncoder.IDENTITY) {
+      SharedLockEnvironment.getInstance().keyEncoder(encoder);
+    }
+  }
+
+  /**
+   * 子类用于包装 key 编码策略，例如先加上 hash tag
+   * @param encoder 配置的编码策略，未开启哈希 key 时是 {@link ISharedLockKeyEncoder#IDENTITY}
+   * @return 实际使用的编码策略
+   */
+  protected ISharedLockKeyEncoder keyEncoder(ISharedLockKeyEncoder encoder) {
+    return encoder;
   }
 
 
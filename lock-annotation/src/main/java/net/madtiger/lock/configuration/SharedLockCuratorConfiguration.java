@@ -1,5 +1,7 @@
 package net.madtiger.lock.configuration;
 
+import static net.madtiger.lock.SharedLockConstants.PROPERTIES_PREFIX;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -8,7 +10,9 @@ import net.madtiger.lock.decorator.SpinLockDecorator;
 import net.madtiger.lock.provider.ISharedLockProvider;
 import net.madtiger.lock.zk.CuratorLockClient;
 import net.madtiger.lock.zk.ZookeeperLockProvider;
+import net.madtiger.lock.zk.ZookeeperLockReaper;
 import org.apache.curator.framework.CuratorFramework;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -19,6 +23,18 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class SharedLockCuratorConfiguration extends AbsSharedLockConfiguration<CuratorFramework> {
 
+  /**
+   * 复用锁的最大数量
+   */
+  @Value("${" + PROPERTIES_PREFIX + "zookeeper.mutex-cache-size:" + CuratorLockClient.DEFAULT_MUTEX_CACHE_SIZE + "}")
+  private int mutexCacheSize;
+
+  /**
+   * 是否清理空的锁父节点，auto 表示不支持容器节点时才清理
+   */
+  @Value("${" + PROPERTIES_PREFIX + "zookeeper.reaper:auto}")
+  private String reaper;
+
   /**
    * 配置 共享锁
    * @param zookeeper zk 客户端
@@ -26,7 +42,11 @@ public class SharedLockCuratorConfiguration extends AbsSharedLockConfiguration<C
    */
   @Override
   protected ISharedLockProvider newSharedLockProvider(CuratorFramework zookeeper){
-    return new ZookeeperLockProvider(new CuratorLockClient(zookeeper));
+    CuratorLockClient lockClient = new CuratorLockClient(zookeeper, mutexCacheSize);
+    if ("true".equalsIgnoreCase(reaper) || ("auto".equalsIgnoreCase(reaper) && !CuratorLockClient.isContainerSupported())) {
+      lockClient.newReaper(ZookeeperLockReaper.DEFAULT_BATCH_SIZE, ZookeeperLockReaper.DEFAULT_DELETES_PER_SECOND).start(ZookeeperLockReaper.DEFAULT_INTERVAL_MILLS);
+    }
+    return new ZookeeperLockProvider(lockClient);
   }
 
   @Override
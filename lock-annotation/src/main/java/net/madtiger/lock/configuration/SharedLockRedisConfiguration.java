@@ -1,14 +1,28 @@
 package net.madtiger.lock.configuration;
 
+import static net.madtiger.lock.SharedLockConstants.PROPERTIES_PREFIX;
+
 import java.util.Arrays;
 import java.util.List;
 import net.madtiger.lock.AbsSharedLockDecorator;
+import net.madtiger.lock.ISharedLockKeyEncoder;
 import net.madtiger.lock.decorator.SpinLockDecorator;
 import net.madtiger.lock.provider.ISharedLockProvider;
+import net.madtiger.lock.redis.LettuceLockClient;
+import net.madtiger.lock.redis.RedisAsyncLockProvider;
+import net.madtiger.lock.redis.RedisHashTagKeyEncoder;
 import net.madtiger.lock.redis.RedisLockClient;
+import net.madtiger.lock.redis.RedisLockNotifier;
 import net.madtiger.lock.redis.RedisLockProvider;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.StringUtils;
 
 /**
  * 自动装载
@@ -16,7 +30,38 @@ import org.springframework.data.redis.core.RedisTemplate;
  * @version 1.0
  */
 @Configuration
-public class SharedLockRedisConfiguration extends AbsSharedLockConfiguration<RedisTemplate> {
+public class SharedLockRedisConfiguration extends AbsSharedLockConfiguration<RedisTemplate> implements DisposableBean {
+
+  /**
+   * 是否开启锁释放通知，开启后等待者订阅释放消息，不再轮询
+   */
+  @Value("${" + PROPERTIES_PREFIX + "redis.notify:false}")
+  private boolean notify;
+
+  /**
+   * 是否开启 lettuce 原生异步接口，只有连接工厂是开启了共享连接的 {@link LettuceConnectionFactory} 时生效
+   */
+  @Value("${" + PROPERTIES_PREFIX + "redis.async:false}")
+  private boolean async;
+
+  /**
+   * hash tag 正则表达式，第一个分组作为 hash tag，例如 order:(\d+)，为空时不加 hash tag，见 {@link RedisHashTagKeyEncoder}
+   */
+  @Value("${" + PROPERTIES_PREFIX + "redis.hash-tag:}")
+  private String hashTag;
+
+  /**
+   * 只给共享锁使用的连接工厂，存在时锁的请求使用独立的连接池，不和 redisTemplate 的缓存请求共用连接。
+   * 定义后 spring boot 不再自动创建默认的连接工厂，业务使用的连接工厂需要同时定义并标记为 @Primary
+   */
+  @Autowired(required = false)
+  @Qualifier(LOCK_CONNECTION_FACTORY)
+  private RedisConnectionFactory lockConnectionFactory;
+
+  /**
+   * 锁释放通知，开启通知时创建，容器关闭时停止订阅
+   */
+  private RedisLockNotifier notifier;
 
   @Override
   protected List<Class<? extends AbsSharedLockDecorator>> defaultDecorators() {
@@ -30,6 +75,54 @@ public class SharedLockRedisConfiguration extends AbsSharedLockConfiguration<Red
    */
   @Override
   protected ISharedLockProvider newSharedLockProvider(RedisTemplate redisTemplate){
-    return new RedisLockProvider(new RedisLockClient(redisTemplate));
+    RedisConnectionFactory connectionFactory = lockConnectionFactory == null ? redisTemplate.getConnectionFactory() : lockConnectionFactory;
+    RedisLockClient lockClient = new RedisLockClient(connectionFactory);
+    if (notify) {
+      notifier = new RedisLockNotifier(connectionFactory);
+    }
+    if (async) {
+      ISharedLockProvider provider = newAsyncProvider(lockClient, connectionFactory);
+      if (provider != null) {
+        return provider;
+      }
+    }
+    if (notifier != null) {
+      return new RedisLockProvider(lockClient, notifier);
+    }
+    return new RedisLockProvider(lockClient);
+  }
+
+  @Override
+  protected ISharedLockKeyEncoder keyEncoder(ISharedLockKeyEncoder encoder) {
+    // 先加上 hash tag 再哈希，哈希 key 编码会原样保留 hash tag
+    return StringUtils.isEmpty(hashTag) ? encoder : new RedisHashTagKeyEncoder(hashTag, encoder);
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    // 通知服务不是 bean，由配置类关闭订阅容器
+    if (notifier != null) {
+      notifier.destroy();
+      notifier = null;
+    }
   }
+
+  /**
+   * 创建异步服务提供者
+   * @param lockClient redis client
+   * @param connectionFactory 连接工厂
+   * @return 不是 lettuce 连接工厂时返回 null
+   */
+  private ISharedLockProvider newAsyncProvider(RedisLockClient lockClient, RedisConnectionFactory connectionFactory) {
+    if (!(connectionFactory instanceof LettuceConnectionFactory)) {
+      return null;
+    }
+    LettuceLockClient lettuceLockClient = LettuceLockClient.create((LettuceConnectionFactory) connectionFactory);
+    return new RedisAsyncLockProvider(lockClient, lettuceLockClient, notifier);
+  }
+
+  /**
+   * 共享锁专用连接工厂的 bean 名称
+   */
+  public static final String LOCK_CONNECTION_FACTORY = "sharedLockRedisConnectionFactory";
 }
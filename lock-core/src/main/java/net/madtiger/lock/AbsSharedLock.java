@@ -1,5 +1,7 @@
 package net.madtiger.lock;
 
+import static net.madtiger.lock.SharedLockConstants.NO_FENCING_TOKEN;
+import static net.madtiger.lock.SharedLockConstants.UNKNOWN_HOLDER_TTL;
 import static net.madtiger.lock.SharedLockStatus.CANCEL;
 import static net.madtiger.lock.SharedLockStatus.LOCKED;
 import static net.madtiger.lock.SharedLockStatus.NEW;
@@ -19,7 +21,7 @@ public abstract class AbsSharedLock implements CompositeSharedLock {
   /**
    * 当前状态
    */
-  protected SharedLockStatus status = NEW;
+  protected volatile SharedLockStatus status = NEW;
 
   /**
    * 获取 provider
@@ -46,11 +48,40 @@ public abstract class AbsSharedLock implements CompositeSharedLock {
    */
   protected Object providerData;
 
+  /**
+   * 指定的持有者标识
+   */
+  protected String owner;
+
+  /**
+   * 要求确认写入的副本数量
+   */
+  protected int replicas;
+
+  /**
+   * 等待副本确认的超时时长
+   */
+  protected long replicaTimeoutMills;
+
+  /**
+   * 本次加锁的 fencing token
+   */
+  protected long fencingToken = NO_FENCING_TOKEN;
+
+  /**
+   * 最近一次获取失败时持有者的剩余持有时长
+   */
+  protected volatile long holderTtlMills = UNKNOWN_HOLDER_TTL;
+
   /**
    * 服务提供者配置信息
    */
   protected IProviderConfigurer providerConfigurer;
 
+  /**
+   * 是否在后台释放锁
+   */
+  protected boolean asyncRelease;
 
 
   /**
@@ -108,6 +139,59 @@ public abstract class AbsSharedLock implements CompositeSharedLock {
       this.providerData = data;
   }
 
+  @Override
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * 设置持有者标识
+   * @param owner 持有者标识，为空时由服务提供者生成
+   */
+  public void setOwner(String owner) {
+    this.owner = owner;
+  }
+
+  @Override
+  public int getReplicas() {
+    return replicas;
+  }
+
+  @Override
+  public long getReplicaTimeoutMills() {
+    return replicaTimeoutMills;
+  }
+
+  /**
+   * 设置副本确认
+   * @param replicas 副本数量，0 表示不等待
+   * @param timeoutMills 等待超时时长，单位毫秒
+   */
+  public void setReplicas(int replicas, long timeoutMills) {
+    this.replicas = replicas;
+    this.replicaTimeoutMills = timeoutMills;
+  }
+
+  @Override
+  public long getFencingToken() {
+    return fencingToken;
+  }
+
+  @Override
+  public void setFencingToken(long fencingToken) {
+    this.fencingToken = fencingToken;
+  }
+
+  @Override
+  public long getHolderTtlMills() {
+    return holderTtlMills;
+  }
+
+  @Override
+  public void setHolderTtlMills(long holderTtlMills) {
+    this.holderTtlMills = holderTtlMills;
+  }
+
   @Override
   public <T extends IProviderConfigurer> T getProviderConfigurer() {
     return (T) providerConfigurer;
@@ -118,6 +202,19 @@ public abstract class AbsSharedLock implements CompositeSharedLock {
     this.providerConfigurer = configurer;
   }
 
+  @Override
+  public boolean isAsyncRelease() {
+    return asyncRelease;
+  }
+
+  /**
+   * 设置是否在后台释放锁
+   * @param asyncRelease 是否在后台释放
+   */
+  public void setAsyncRelease(boolean asyncRelease) {
+    this.asyncRelease = asyncRelease;
+  }
+
   /**
    * 是否需要解锁
    * @return
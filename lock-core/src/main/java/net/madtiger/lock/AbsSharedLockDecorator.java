@@ -1,5 +1,7 @@
 package net.madtiger.lock;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import net.madtiger.lock.provider.IProviderConfigurer;
 import net.madtiger.lock.provider.ISharedLockProvider;
 import org.slf4j.Logger;
@@ -62,6 +64,11 @@ public abstract class AbsSharedLockDecorator implements CompositeSharedLock {
     return delegate.getKey();
   }
 
+  @Override
+  public String getReentrantKey() {
+    return delegate.getReentrantKey();
+  }
+
   @Override
   public int getLockSeconds() {
     return delegate.getLockSeconds();
@@ -82,6 +89,31 @@ public abstract class AbsSharedLockDecorator implements CompositeSharedLock {
     return delegate.interrupted();
   }
 
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit) {
+    return delegate.tryLockAsync(time, unit);
+  }
+
+  @Override
+  public CompletableFuture<Void> unlockAsync() {
+    return delegate.unlockAsync();
+  }
+
+  @Override
+  public boolean isAsyncRelease() {
+    return delegate.isAsyncRelease();
+  }
+
+  @Override
+  public boolean acquireOnce() {
+    return delegate.acquireOnce();
+  }
+
+  @Override
+  public boolean extend(long time, TimeUnit unit) {
+    return delegate.extend(time, unit);
+  }
+
   @Override
   public void setProvider(ISharedLockProvider provider) {
     delegate.setProvider(provider);
@@ -98,6 +130,41 @@ public abstract class AbsSharedLockDecorator implements CompositeSharedLock {
     delegate.setProviderData(data);
   }
 
+  @Override
+  public String getOwner() {
+    return delegate.getOwner();
+  }
+
+  @Override
+  public int getReplicas() {
+    return delegate.getReplicas();
+  }
+
+  @Override
+  public long getReplicaTimeoutMills() {
+    return delegate.getReplicaTimeoutMills();
+  }
+
+  @Override
+  public long getFencingToken() {
+    return delegate.getFencingToken();
+  }
+
+  @Override
+  public void setFencingToken(long fencingToken) {
+    delegate.setFencingToken(fencingToken);
+  }
+
+  @Override
+  public long getHolderTtlMills() {
+    return delegate.getHolderTtlMills();
+  }
+
+  @Override
+  public void setHolderTtlMills(long holderTtlMills) {
+    delegate.setHolderTtlMills(holderTtlMills);
+  }
+
   @Override
   @NonNull
   public <T extends IProviderConfigurer> T getProviderConfigurer() {
@@ -9,6 +9,8 @@ import static net.madtiger.lock.SharedLockStatus.TIMEOUT_UNLOCK;
 import static net.madtiger.lock.SharedLockStatus.UNLOCK_FAIL;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import net.madtiger.lock.capable.IProviderWritable;
 import net.madtiger.lock.capable.ISharedLockWritable;
@@ -50,6 +52,66 @@ public interface CompositeSharedLock extends ISharedLock, IProviderWritable, ISh
     }
   }
 
+  /**
+   * 默认在调用线程中同步获取，支持异步的实现应覆盖此方法
+   */
+  @Override
+  default CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit) {
+    Objects.requireNonNull(unit);
+    try {
+      return CompletableFuture.completedFuture(time <= 0 ? tryLock() : tryLock(time, unit));
+    } catch (InterruptedException e) {
+      return SharedLockTimer.failed(e);
+    }
+  }
+
+  /**
+   * 默认在调用线程中同步释放，支持异步的实现应覆盖此方法
+   */
+  @Override
+  default CompletableFuture<Void> unlockAsync() {
+    try {
+      unlock();
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException e) {
+      return SharedLockTimer.failed(e);
+    }
+  }
+
+  /**
+   * 是否在后台释放锁，开启后 {@link #execute(IDoCallback, IDoCallback, IDoCallback, int, TimeUnit)} 不等待释放完成就返回，
+   * 释放完成后再更新状态，释放失败时在后台执行回滚
+   * @return 默认同步释放
+   */
+  default boolean isAsyncRelease() {
+    return false;
+  }
+
+  /**
+   * 通过服务提供者尝试获取一次锁，不修改锁的状态，供自旋等装饰者使用
+   * @return 是否获取成功
+   */
+  default boolean acquireOnce() {
+    return getProvider().doAcquire(this);
+  }
+
+  /**
+   * 可重入装饰者识别同一个锁使用的 key，默认就是锁的 key
+   * @return 重入 key
+   */
+  default String getReentrantKey() {
+    return getKey();
+  }
+
+  @Override
+  default boolean extend(long time, TimeUnit unit) {
+    Objects.requireNonNull(unit);
+    if (!isLocked()) {
+      return false;
+    }
+    return getProvider().doExtend(this, time, unit);
+  }
+
   @Override
   default void close() throws Exception {
     // 是否结束，结束的话，直接忽略
@@ -85,15 +147,59 @@ public interface CompositeSharedLock extends ISharedLock, IProviderWritable, ISh
         result = faultCallback.callback();
       }
     }finally {
-      unlock();
-      // 检查是否需要回滚
-      if (isStatus(UNLOCK_FAIL) && rollback != null) {
-        result = rollback.callback();
+      // 后台释放，释放失败时在后台回滚
+      if (isAsyncRelease()) {
+        SharedlockUtils.releaseInBackground(this, rollback);
+      } else {
+        unlock();
+        // 检查是否需要回滚
+        if (isStatus(UNLOCK_FAIL) && rollback != null) {
+          result = rollback.callback();
+        }
       }
     }
     return result;
   }
 
+  @Override
+  default <T> CompletableFuture<T> executeAsync(IDoCallback<? extends CompletionStage<T>> callback, IDoCallback<? extends CompletionStage<T>> faultCallback,
+      IDoCallback<? extends CompletionStage<T>> rollback, int time, TimeUnit unit) {
+    Objects.requireNonNull(callback);
+    Objects.requireNonNull(unit);
+    CompletableFuture<T> result = new CompletableFuture<>();
+    tryLockAsync(time, unit).whenComplete((locked, lockEx) -> {
+      CompletableFuture<T> stage;
+      if (lockEx != null) {
+        stage = SharedLockTimer.failed(lockEx);
+      } else if (locked) {
+        // 成功，执行业务
+        stage = SharedlockUtils.callAsync(callback);
+      } else if (faultCallback == null) {
+        stage = SharedLockTimer.failed(new TimeoutSharedLockException(getKey()));
+      } else {
+        // 降级
+        stage = SharedlockUtils.callAsync(faultCallback);
+      }
+      // 结束后释放，释放失败时回滚
+      stage.whenComplete((value, ex) -> unlockAsync().whenComplete((v, unlockEx) -> {
+        if (isStatus(UNLOCK_FAIL) && rollback != null) {
+          SharedlockUtils.callAsync(rollback).whenComplete((rollbackValue, rollbackEx) -> {
+            if (rollbackEx != null) {
+              result.completeExceptionally(rollbackEx);
+            } else {
+              result.complete(rollbackValue);
+            }
+          });
+        } else if (ex != null) {
+          result.completeExceptionally(ex);
+        } else {
+          result.complete(value);
+        }
+      }));
+    });
+    return result;
+  }
+
   /**
    * 比较状态
    * @param status 比较的状态
@@ -1,14 +1,17 @@
 package net.madtiger.lock;
 
+import static net.madtiger.lock.SharedLockStatus.CANCEL;
 import static net.madtiger.lock.SharedLockStatus.LOCKED;
 import static net.madtiger.lock.SharedLockStatus.NEW;
 import static net.madtiger.lock.SharedLockStatus.TIMEOUT;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import net.madtiger.lock.exception.TimeoutSharedLockException;
 import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.IAsyncSharedLockProvider;
 
 /**
  * 简单的互斥锁
@@ -42,11 +45,12 @@ public class DefaultSharedLock extends AbsSharedLock{
     try{
       // 如果小于0 则降级成 try lock
       if (time <= 0){
-        if (provider.doAcquire(this, time, unit) ){
+        if (doAcquire(time, unit)){
           status = LOCKED;
           return true;
         } else {
           status = TIMEOUT;
+          provider.cancelAcquire(this);
           return false;
         }
       }
@@ -58,14 +62,122 @@ public class DefaultSharedLock extends AbsSharedLock{
         if (status == NEW) {
           status = TIMEOUT;
         }
+        provider.cancelAcquire(this);
         return false;
       }
     }catch (TimeoutSharedLockException timeout){
       status = TIMEOUT;
+      provider.cancelAcquire(this);
       return false;
     }
   }
 
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit) {
+    Objects.requireNonNull(unit);
+    // 线程绑定的服务提供者只能在调用线程中同步获取
+    if (provider.isThreadBound()) {
+      return super.tryLockAsync(time, unit);
+    }
+    if (status != NEW) {
+      return SharedLockTimer.failed(new InterruptedException(String.format("%s锁的当前状态是 %s 不能再次获取锁", key, status)));
+    }
+    long timeout = System.currentTimeMillis() + (time <= 0 ? 0 : unit.toMillis(time));
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    attemptAsync(timeout, result);
+    return result.thenApply(locked -> {
+      if (locked) {
+        status = LOCKED;
+      } else if (status == NEW) {
+        status = TIMEOUT;
+      }
+      return locked;
+    });
+  }
+
+  /**
+   * 异步获取一次，失败后由定时器唤醒重试，直到超时
+   * @param timeout 超时时间
+   * @param result 获取结果
+   */
+  private void attemptAsync(long timeout, CompletableFuture<Boolean> result) {
+    acquireOnceAsync().whenComplete((locked, ex) -> {
+      try {
+        if (ex != null) {
+          log.warn("{} 锁异步获取失败", key, ex);
+        }
+        if (ex == null && locked) {
+          result.complete(true);
+          return;
+        }
+        long remaining = timeout - System.currentTimeMillis();
+        if (remaining <= 0 || status == CANCEL || !provider.isWorthWaiting(awaitLock(), remaining)) {
+          // 回调可能在 I/O 线程中执行，放弃获取不能阻塞
+          cancelAcquireAsync().whenComplete((v, e) -> {
+            if (e != null) {
+              log.warn("{} 锁放弃获取失败", key, e);
+            }
+            result.complete(false);
+          });
+          return;
+        }
+        provider.awaitReleaseAsync(awaitLock(), MIN_SLEEP_MILLS + (long) ((MAX_SLEEP_MILLS - MIN_SLEEP_MILLS) * Math.random()), remaining)
+            .whenComplete((v, e) -> attemptAsync(timeout, result));
+      } catch (Throwable e) {
+        // 任何异常都不能让调用者一直等待
+        result.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * 异步放弃获取，不会在调用线程中阻塞
+   * @return 完成结果
+   */
+  private CompletableFuture<Void> cancelAcquireAsync() {
+    IAsyncSharedLockProvider asyncProvider = asyncProvider();
+    try {
+      return asyncProvider != null ? asyncProvider.cancelAcquireAsync(this) : SharedLockTimer.supply(() -> {
+        provider.cancelAcquire(this);
+        return null;
+      });
+    } catch (RuntimeException e) {
+      return SharedLockTimer.failed(e);
+    }
+  }
+
+  /**
+   * 异步尝试获取一次锁，服务提供者不支持异步时在工作线程中同步获取
+   * @return 获取结果
+   */
+  protected CompletableFuture<Boolean> acquireOnceAsync() {
+    IAsyncSharedLockProvider asyncProvider = asyncProvider();
+    return asyncProvider == null ? SharedLockTimer.supply(this::acquireOnce) : asyncProvider.doAcquireAsync(this);
+  }
+
+  @Override
+  public CompletableFuture<Void> unlockAsync() {
+    if (provider.isThreadBound()) {
+      return super.unlockAsync();
+    }
+    IAsyncSharedLockProvider asyncProvider = asyncProvider();
+    if (asyncProvider == null) {
+      return SharedLockReleaser.release(this::unlock);
+    }
+    return asyncProvider.doReleaseAsync(this).handle((released, ex) -> {
+      unlocked(ex == null && released);
+      return null;
+    });
+  }
+
+  /**
+   * 获取异步服务提供者，使用了服务提供者其他接口的子类应返回 null
+   * @return 不支持异步时返回 null
+   */
+  protected IAsyncSharedLockProvider asyncProvider() {
+    return provider instanceof IAsyncSharedLockProvider ? (IAsyncSharedLockProvider) provider : null;
+  }
+
   /**
    * 支持自旋的 获取
    * @param time
@@ -77,6 +189,41 @@ public class DefaultSharedLock extends AbsSharedLock{
     return provider.doAcquire(this, time, unit);
   }
 
+  /**
+   * 通过 {@link #acquireOnce()} 自旋获取，失败后等待 {@link #awaitLock()} 被释放，供不能直接使用 provider 超时获取的锁使用
+   * @param time 时间，小于等于 0 时只尝试一次
+   * @param unit 单位
+   * @return 是否获取成功
+   * @throws InterruptedException 等待被中断
+   */
+  protected boolean spinAcquire(long time, TimeUnit unit) throws InterruptedException {
+    if (time <= 0) {
+      return acquireOnce();
+    }
+    long timeout = System.currentTimeMillis() + unit.toMillis(time);
+    do {
+      if (status == CANCEL) {
+        return false;
+      }
+      if (acquireOnce()) {
+        return true;
+      }
+      if (!provider.isWorthWaiting(awaitLock(), timeout - System.currentTimeMillis())) {
+        return false;
+      }
+      provider.awaitRelease(awaitLock(), MIN_SLEEP_MILLS + (long) ((MAX_SLEEP_MILLS - MIN_SLEEP_MILLS) * Math.random()), timeout - System.currentTimeMillis());
+    } while (System.currentTimeMillis() < timeout);
+    return false;
+  }
+
+  /**
+   * 自旋获取失败后等待释放的锁
+   * @return 默认是自己
+   */
+  protected CompositeSharedLock awaitLock() {
+    return this;
+  }
+
   @Override
   public void unlock() {
     try{
@@ -86,4 +233,14 @@ public class DefaultSharedLock extends AbsSharedLock{
       unlocked(false);
     }
   }
+
+  /**
+   * 自旋最小休眠时间
+   */
+  private static final int MIN_SLEEP_MILLS = 100;
+
+  /**
+   * 自旋最大休眠时间
+   */
+  private static final int MAX_SLEEP_MILLS = 500;
 }
@@ -0,0 +1,140 @@
+package net.madtiger.lock;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 哈希 key 编码，把逻辑 key 编码成 命名空间 + 128 位哈希的 base64（22 个字符）
+ * <p>
+ *   注解默认使用方法签名作为 key，经常超过 150 字节，每条命令都要发送，并且作为 redis key 或者 zookeeper 节点长期保存，
+ *   编码后长度固定，例如 {@code lock:0j_w0yuPOzulFsrQVAxtgQ}。key 包含 redis hash tag 时原样保留 hash tag，
+ *   例如 {@code {order:42}:stock} 编码成 {@code lock:{order:42}UyI0npNCdNQ4So-ipeyBng}，编码后的锁 key 与使用相同 hash tag 的业务 key 仍在同一个 slot，
+ *   可以在同一个 lua 脚本中使用。hash tag 包含 / 时不能作为 zookeeper 节点名称的一部分，改为哈希编码，此时只与相同 hash tag 的锁 key 在同一个 slot。
+ *   开启调试映射后保留最近使用的 编码 key -> 逻辑 key，便于排查问题
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class HashedKeyEncoder implements ISharedLockKeyEncoder {
+
+  /**
+   * 编码器，不带填充，只包含 url 安全字符，可以作为 zookeeper 节点名称
+   */
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  /**
+   * 每个线程一个摘要实例
+   */
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(HashedKeyEncoder::newDigest);
+
+  /**
+   * 命名空间前缀
+   */
+  private final String namespace;
+
+  /**
+   * 调试映射，编码 key -> 逻辑 key，未开启时为 null
+   */
+  private final Map<String, String> mapping;
+
+  /**
+   * 构造函数，不保留调试映射
+   * @param namespace 命名空间前缀，可以为空字符串
+   */
+  public HashedKeyEncoder(String namespace) {
+    this(namespace, false);
+  }
+
+  /**
+   * 构造函数
+   * @param namespace 命名空间前缀，可以为空字符串
+   * @param debug 是否保留调试映射
+   */
+  public HashedKeyEncoder(String namespace, boolean debug) {
+    Objects.requireNonNull(namespace);
+    this.namespace = namespace;
+    this.mapping = debug ? Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > MAX_MAPPING_SIZE;
+      }
+    }) : null;
+  }
+
+  @Override
+  public String encode(String key) {
+    Objects.requireNonNull(key);
+    StringBuilder sb = new StringBuilder(namespace);
+    // 保留 hash tag，与 redis cluster 的规则一致：第一个 { 之后的第一个 } 之间有内容
+    int start = key.indexOf('{');
+    int end = start < 0 ? -1 : key.indexOf('}', start + 1);
+    if (end > start + 1) {
+      String tag = key.substring(start + 1, end);
+      sb.append('{').append(tag.indexOf('/') < 0 ? tag : hash(tag, TAG_LENGTH)).append('}');
+    }
+    String encoded = sb.append(hash(key, HASH_LENGTH)).toString();
+    if (mapping != null && mapping.put(encoded, key) == null) {
+      log.debug("共享锁 key {} 编码为 {}", key, encoded);
+    }
+    return encoded;
+  }
+
+  /**
+   * 查询编码前的逻辑 key，只能查到开启调试映射后最近使用的 key
+   * @param encoded 编码后的 key
+   * @return 逻辑 key，未开启调试映射或者已淘汰时返回 null
+   */
+  public String decode(String encoded) {
+    return mapping == null ? null : mapping.get(encoded);
+  }
+
+  /**
+   * 计算哈希并编码
+   * @param value 原始值
+   * @param length 取摘要的字节数
+   * @return 编码结果
+   */
+  private static String hash(String value, int length) {
+    MessageDigest digest = DIGEST.get();
+    byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+    byte[] truncated = new byte[length];
+    System.arraycopy(bytes, 0, truncated, 0, length);
+    return ENCODER.encodeToString(truncated);
+  }
+
+  /**
+   * 创建摘要实例
+   * @return 摘要
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * key 哈希字节数，128 位
+   */
+  private static final int HASH_LENGTH = 16;
+
+  /**
+   * 包含 / 的 hash tag 哈希字节数，只用于决定 slot，64 位足够
+   */
+  private static final int TAG_LENGTH = 8;
+
+  /**
+   * 调试映射最大数量
+   */
+  private static final int MAX_MAPPING_SIZE = 10000;
+}
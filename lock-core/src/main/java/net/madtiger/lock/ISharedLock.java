@@ -1,5 +1,7 @@
 package net.madtiger.lock;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import net.madtiger.lock.capable.ISharedLockExecute;
@@ -25,6 +27,13 @@ public interface ISharedLock extends Lock, AutoCloseable, ISharedLockExecute {
    */
   String getKey();
 
+  /**
+   * 获取本次加锁的 fencing token，每次获取锁成功都会得到一个比之前更大的值，
+   * 下游存储可以据此拒绝已过期持有者（如 GC 停顿超过锁定时长）的写入
+   * @return fencing token，未持有锁或服务提供者不支持时返回 {@link SharedLockConstants#NO_FENCING_TOKEN}
+   */
+  long getFencingToken();
+
   /**
    * 需要锁定的时间
    * @return 当前设置的 时间
@@ -60,6 +69,37 @@ public interface ISharedLock extends Lock, AutoCloseable, ISharedLockExecute {
    */
   boolean interrupted();
 
+  /**
+   * 延长锁的持有时间，从调用时刻开始重新计算，只对 LOCKED 状态可用
+   * @param time 新的持有时长
+   * @param unit 时间单位
+   * @return 是否延长成功，未持有锁或者锁已被其他人持有时返回 false
+   */
+  boolean extend(long time, TimeUnit unit);
+
+
+  /**
+   * 异步获取锁，等待期间不占用线程，线程绑定的服务提供者（如 zookeeper）会在调用线程中同步获取
+   * @param time 等待时间，小于等于 0 时只尝试一次
+   * @param unit 时间单位
+   * @return 获取结果
+   */
+  CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit);
+
+  /**
+   * 异步尝试获取一次锁
+   * @return 获取结果
+   */
+  default CompletableFuture<Boolean> tryLockAsync() {
+    return tryLockAsync(-1, TimeUnit.SECONDS);
+  }
+
+  /**
+   * 异步释放锁，完成后可以通过 {@link #getStatus()} 获取释放结果
+   * @return 释放结束后完成
+   */
+  CompletableFuture<Void> unlockAsync();
+
 
   /**
    * 此方法不支持
@@ -0,0 +1,28 @@
+package net.madtiger.lock;
+
+/**
+ * 锁 key 编码策略，把业务上的逻辑 key 转换成实际发送到服务提供者的 key
+ * <p>
+ *   通过 {@link SharedLockEnvironment#keyEncoder(ISharedLockKeyEncoder)} 全局设置，或者 {@link SharedLockBuilder#keyEncoder(ISharedLockKeyEncoder)} 单独设置，
+ *   同一个逻辑 key 在所有实例中必须编码成同一个 key
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ * @see HashedKeyEncoder
+ */
+@FunctionalInterface
+public interface ISharedLockKeyEncoder {
+
+  /**
+   * 编码 key
+   * @param key 逻辑 key
+   * @return 实际使用的 key
+   */
+  String encode(String key);
+
+  /**
+   * 不做任何转换
+   */
+  ISharedLockKeyEncoder IDENTITY = key -> key;
+}
@@ -0,0 +1,56 @@
+package net.madtiger.lock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式信号量，同一个 key 最多同时发放 {@link #getPermits()} 个许可
+ * <p>
+ *   和共享锁一样只能使用一次，{@link #tryLock(long, TimeUnit)} 获取一个许可，{@link #unlock()} 释放本次获取的全部许可
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public interface ISharedSemaphore extends ISharedLock {
+
+  /**
+   * 许可总数
+   * @return 总数
+   */
+  int getPermits();
+
+  /**
+   * 立即获取多个许可
+   * @param permits 许可数量
+   * @return 是否获取成功
+   */
+  default boolean tryAcquire(int permits) {
+    try {
+      return tryAcquire(permits, -1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      return false;
+    }
+  }
+
+  /**
+   * 特定时间内获取多个许可
+   * @param permits 许可数量，不能超过许可总数
+   * @param time 时间
+   * @param unit 单位
+   * @return 是否获取成功
+   * @throws InterruptedException 等待被中断
+   */
+  boolean tryAcquire(int permits, long time, TimeUnit unit) throws InterruptedException;
+
+  /**
+   * 本次已获取的许可数量
+   * @return 未获取时返回 0
+   */
+  int getAcquiredPermits();
+
+  /**
+   * 当前剩余的许可数量
+   * @return 剩余数量
+   */
+  int availablePermits();
+}
@@ -0,0 +1,124 @@
+package net.madtiger.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import net.madtiger.lock.exception.TimeoutSharedLockException;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.IAsyncSharedLockProvider;
+import net.madtiger.lock.provider.IProviderConfigurer;
+import net.madtiger.lock.provider.ISharedLockProvider;
+
+/**
+ * 多 key 组合锁，所有 key 要么全部获取成功，要么全部失败
+ * <p>
+ *   key 按字典序排序后交由服务提供者的 {@link ISharedLockProvider#doAcquireAll(List)} 一次获取，
+ *   不同调用方传入的 key 顺序不同也不会死锁
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class MultiSharedLock extends DefaultSharedLock {
+
+  /**
+   * 每个 key 对应的锁，已排序
+   */
+  private final List<CompositeSharedLock> locks;
+
+  /**
+   * 构造函数
+   *
+   * @param keys 锁定的 key 列表
+   * @param providerName 服务提供者名称
+   * @param lockSeconds 锁定时长
+   */
+  public MultiSharedLock(Collection<String> keys, String providerName, int lockSeconds) {
+    this(new TreeSet<>(Objects.requireNonNull(keys)), providerName, lockSeconds);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param sortedKeys 排序并去重后的 key
+   * @param providerName 服务提供者名称
+   * @param lockSeconds 锁定时长
+   */
+  private MultiSharedLock(TreeSet<String> sortedKeys, String providerName, int lockSeconds) {
+    super(String.join(KEY_SEPARATOR, sortedKeys), providerName, lockSeconds);
+    if (sortedKeys.isEmpty()) {
+      throw new IllegalArgumentException("组合锁至少需要一个 key");
+    }
+    List<CompositeSharedLock> list = new ArrayList<>(sortedKeys.size());
+    for (String key : sortedKeys) {
+      list.add(new DefaultSharedLock(key, providerName, lockSeconds));
+    }
+    this.locks = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * 获取每个 key 对应的锁，可用于读取各自的 fencing token
+   * @return 已排序的锁列表
+   */
+  public List<? extends ISharedLock> getLocks() {
+    return locks;
+  }
+
+  @Override
+  public boolean acquireOnce() {
+    return provider.doAcquireAll(locks);
+  }
+
+  @Override
+  protected boolean doAcquire(long time, TimeUnit unit) throws InterruptedException, TimeoutSharedLockException {
+    return spinAcquire(time, unit);
+  }
+
+  @Override
+  protected CompositeSharedLock awaitLock() {
+    // 等待第一个 key 释放
+    return locks.get(0);
+  }
+
+  @Override
+  protected IAsyncSharedLockProvider asyncProvider() {
+    // 批量获取使用同步接口，在工作线程中执行
+    return null;
+  }
+
+  @Override
+  public void unlock() {
+    try{
+      unlocked(provider.doReleaseAll(locks));
+    }catch (UnLockFailSharedLockException ex) {
+      unlocked(false);
+    }
+  }
+
+  @Override
+  public void setProvider(ISharedLockProvider provider) {
+    super.setProvider(provider);
+    locks.forEach(lock -> lock.setProvider(provider));
+  }
+
+  @Override
+  public void setLockSeconds(int lockSeconds) {
+    super.setLockSeconds(lockSeconds);
+    locks.forEach(lock -> lock.setLockSeconds(lockSeconds));
+  }
+
+  @Override
+  public <K extends IProviderConfigurer> void setProviderConfigurer(K configurer) {
+    super.setProviderConfigurer(configurer);
+    locks.forEach(lock -> lock.setProviderConfigurer(configurer));
+  }
+
+  /**
+   * 组合 key 分隔符
+   */
+  private static final String KEY_SEPARATOR = ",";
+}
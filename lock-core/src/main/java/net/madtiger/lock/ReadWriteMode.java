@@ -0,0 +1,21 @@
+package net.madtiger.lock;
+
+/**
+ * 读写锁模式
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public enum ReadWriteMode {
+
+  /**
+   * 读锁，多个读锁可以同时持有
+   */
+  READ,
+
+  /**
+   * 写锁，与其他读锁和写锁互斥
+   */
+  WRITE;
+
+}
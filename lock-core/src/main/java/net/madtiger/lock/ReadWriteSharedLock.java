@@ -0,0 +1,100 @@
+package net.madtiger.lock;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import net.madtiger.lock.exception.TimeoutSharedLockException;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.IAsyncSharedLockProvider;
+import net.madtiger.lock.provider.ISharedReadWriteLockProvider;
+
+/**
+ * 读写锁中的读锁或写锁，通过 {@link SharedReadWriteLock#readLock()} 和 {@link SharedReadWriteLock#writeLock()} 获取
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class ReadWriteSharedLock extends DefaultSharedLock {
+
+  /**
+   * 模式
+   */
+  private final ReadWriteMode mode;
+
+  /**
+   * 构造函数
+   *
+   * @param key 锁定的 key
+   * @param providerName 服务提供者名称
+   * @param lockSeconds 锁定时长
+   * @param mode 模式
+   */
+  public ReadWriteSharedLock(String key, String providerName, int lockSeconds, ReadWriteMode mode) {
+    super(key, providerName, lockSeconds);
+    Objects.requireNonNull(mode);
+    this.mode = mode;
+  }
+
+  /**
+   * 获取模式
+   * @return 读或写
+   */
+  public ReadWriteMode getMode() {
+    return mode;
+  }
+
+  @Override
+  public String getReentrantKey() {
+    // 读锁与写锁分开重入，同一线程持有读锁时不会被当作持有写锁
+    return key + REENTRANT_SEPARATOR + mode;
+  }
+
+  @Override
+  public boolean acquireOnce() {
+    return readWriteProvider().doAcquire(this, mode);
+  }
+
+  @Override
+  protected boolean doAcquire(long time, TimeUnit unit) throws InterruptedException, TimeoutSharedLockException {
+    return spinAcquire(time, unit);
+  }
+
+  @Override
+  public boolean extend(long time, TimeUnit unit) {
+    Objects.requireNonNull(unit);
+    if (!isLocked()) {
+      return false;
+    }
+    return readWriteProvider().doExtend(this, mode, time, unit);
+  }
+
+  @Override
+  protected IAsyncSharedLockProvider asyncProvider() {
+    // 读写锁使用同步接口，在工作线程中执行
+    return null;
+  }
+
+  @Override
+  public void unlock() {
+    try{
+      unlocked(readWriteProvider().doRelease(this, mode));
+    }catch (UnLockFailSharedLockException ex) {
+      unlocked(false);
+    }
+  }
+
+  /**
+   * 获取读写锁服务提供者
+   * @return 服务提供者
+   */
+  private ISharedReadWriteLockProvider readWriteProvider() {
+    if (!(provider instanceof ISharedReadWriteLockProvider)) {
+      throw new UnsupportedOperationException(String.format("%s 不支持读写锁", provider.getClass().getSimpleName()));
+    }
+    return (ISharedReadWriteLockProvider) provider;
+  }
+
+  /**
+   * 重入 key 分隔符
+   */
+  private static final String REENTRANT_SEPARATOR = "#";
+}
@@ -0,0 +1,115 @@
+package net.madtiger.lock;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import net.madtiger.lock.exception.TimeoutSharedLockException;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.IAsyncSharedLockProvider;
+import net.madtiger.lock.provider.ISharedSemaphoreProvider;
+
+/**
+ * 分布式信号量，通过 {@link SharedLockBuilder#permits(int)} 设置许可总数
+ * <p>
+ *   作为共享锁使用时，每次获取一个许可，可以通过 {@link #tryAcquire(int, long, TimeUnit)} 一次获取多个
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class SemaphoreSharedLock extends DefaultSharedLock implements ISharedSemaphore {
+
+  /**
+   * 许可总数
+   */
+  private final int permits;
+
+  /**
+   * 本次获取的许可数量
+   */
+  private int acquirePermits = 1;
+
+  /**
+   * 构造函数
+   *
+   * @param key 锁定的 key
+   * @param providerName 服务提供者名称
+   * @param lockSeconds 锁定时长
+   * @param permits 许可总数
+   */
+  public SemaphoreSharedLock(String key, String providerName, int lockSeconds, int permits) {
+    super(key, providerName, lockSeconds);
+    if (permits <= 0) {
+      throw new IllegalArgumentException("信号量许可总数必须大于 0");
+    }
+    this.permits = permits;
+  }
+
+  @Override
+  public int getPermits() {
+    return permits;
+  }
+
+  @Override
+  public boolean tryAcquire(int permits, long time, TimeUnit unit) throws InterruptedException {
+    if (permits <= 0 || permits > this.permits) {
+      throw new IllegalArgumentException(String.format("%s 信号量一次只能获取 1 ~ %d 个许可", key, this.permits));
+    }
+    acquirePermits = permits;
+    return tryLock(time, unit);
+  }
+
+  @Override
+  public int getAcquiredPermits() {
+    return isLocked() ? acquirePermits : 0;
+  }
+
+  @Override
+  public int availablePermits() {
+    return semaphoreProvider().availablePermits(this, permits);
+  }
+
+  @Override
+  public boolean acquireOnce() {
+    return semaphoreProvider().doAcquirePermits(this, acquirePermits, permits);
+  }
+
+  @Override
+  protected boolean doAcquire(long time, TimeUnit unit) throws InterruptedException, TimeoutSharedLockException {
+    return spinAcquire(time, unit);
+  }
+
+  @Override
+  public boolean extend(long time, TimeUnit unit) {
+    Objects.requireNonNull(unit);
+    if (!isLocked()) {
+      return false;
+    }
+    return semaphoreProvider().doExtendPermits(this, acquirePermits, time, unit);
+  }
+
+  @Override
+  protected IAsyncSharedLockProvider asyncProvider() {
+    // 信号量使用同步接口，在工作线程中执行
+    return null;
+  }
+
+  @Override
+  public void unlock() {
+    try{
+      unlocked(semaphoreProvider().doReleasePermits(this, acquirePermits));
+    }catch (UnLockFailSharedLockException ex) {
+      unlocked(false);
+    }
+  }
+
+  /**
+   * 获取信号量服务提供者
+   * @return 服务提供者
+   */
+  private ISharedSemaphoreProvider semaphoreProvider() {
+    if (!(provider instanceof ISharedSemaphoreProvider)) {
+      throw new UnsupportedOperationException(String.format("%s 不支持信号量", provider.getClass().getSimpleName()));
+    }
+    return (ISharedSemaphoreProvider) provider;
+  }
+}
@@ -1,5 +1,7 @@
 package net.madtiger.lock;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -29,6 +31,21 @@ public class SharedLockBuilder {
    */
   private String key;
 
+  /**
+   * 组合锁的 key 列表
+   */
+  private Set<String> keys = new HashSet<>(8);
+
+  /**
+   * 信号量许可总数，大于 1 时生成 {@link SemaphoreSharedLock}
+   */
+  private int permits = 1;
+
+  /**
+   * 读写模式，不为空时生成 {@link ReadWriteSharedLock}
+   */
+  private ReadWriteMode readWriteMode;
+
   /**
    * 装饰者
    */
@@ -39,6 +56,31 @@ public class SharedLockBuilder {
    */
   private IProviderConfigurer providerConfigurer;
 
+  /**
+   * 是否在后台释放锁
+   */
+  private boolean asyncRelease;
+
+  /**
+   * key 编码策略，为空时使用全局配置
+   */
+  private ISharedLockKeyEncoder keyEncoder;
+
+  /**
+   * 持有者标识
+   */
+  private String owner;
+
+  /**
+   * 要求确认写入的副本数量
+   */
+  private int replicas;
+
+  /**
+   * 等待副本确认的超时时长
+   */
+  private long replicaTimeoutMills;
+
   /**
    * 设置 服务提供者名称，默认是默认资源
    * @param providerName 服务提供者名称
@@ -62,6 +104,27 @@ public class SharedLockBuilder {
     return this;
   }
 
+  /**
+   * 添加多个 key，设置后生成 {@link MultiSharedLock}，所有 key 一次全部获取，不能与信号量、读写模式同时使用
+   * @param keys key 列表
+   * @return chain 对象
+   */
+  public SharedLockBuilder keys(String... keys){
+    Objects.requireNonNull(keys);
+    return keys(Arrays.asList(keys));
+  }
+
+  /**
+   * 添加多个 key，设置后生成 {@link MultiSharedLock}，所有 key 一次全部获取，不能与信号量、读写模式同时使用
+   * @param keys key 列表
+   * @return chain 对象
+   */
+  public SharedLockBuilder keys(Collection<String> keys){
+    Objects.requireNonNull(keys);
+    this.keys.addAll(keys);
+    return this;
+  }
+
   /**
    * 设置 服务提供者配置
    * @param providerConfigurer 配置，可以通过 各自的 builder
@@ -83,6 +146,76 @@ public class SharedLockBuilder {
     return this;
   }
 
+  /**
+   * 设置信号量许可总数，大于 1 时同一个 key 最多允许 permits 个持有者同时持有，{@link #build()} 返回 {@link ISharedSemaphore}，
+   * 信号量不可重入，不添加装饰者，不能与组合 key、读写模式同时使用
+   * @param permits 许可总数
+   * @return chain 对象
+   */
+  public SharedLockBuilder permits(int permits){
+    if (permits <= 0) {
+      throw new IllegalArgumentException("信号量许可总数必须大于 0");
+    }
+    this.permits = permits;
+    return this;
+  }
+
+  /**
+   * 设置读写模式，{@link #build()} 生成读锁或写锁，与 {@link SharedReadWriteLock} 的读锁、写锁互斥规则相同，不能与组合 key、信号量同时使用
+   * @param mode 模式，为空时生成互斥锁
+   * @return chain 对象
+   */
+  public SharedLockBuilder readWrite(ReadWriteMode mode){
+    this.readWriteMode = mode;
+    return this;
+  }
+
+  /**
+   * 设置是否在后台释放锁，开启后 execute 执行完业务不等待释放完成就返回，释放失败时在后台执行回滚
+   * @param asyncRelease 是否在后台释放
+   * @return chain 对象
+   */
+  public SharedLockBuilder asyncRelease(boolean asyncRelease){
+    this.asyncRelease = asyncRelease;
+    return this;
+  }
+
+  /**
+   * 设置 key 编码策略，覆盖 {@link SharedLockEnvironment#getKeyEncoder()}
+   * @param keyEncoder 编码策略
+   * @return chain 对象
+   */
+  public SharedLockBuilder keyEncoder(ISharedLockKeyEncoder keyEncoder){
+    this.keyEncoder = keyEncoder;
+    return this;
+  }
+
+  /**
+   * 设置持有者标识，服务提供者开启服务端可重入时，相同持有者在任意线程、进程中都可以重入
+   * @param owner 持有者标识
+   * @return chain 对象
+   */
+  public SharedLockBuilder owner(String owner){
+    this.owner = owner;
+    return this;
+  }
+
+  /**
+   * 设置副本确认，获取成功后等待至少 replicas 个副本确认写入，超时仍不足时释放并视为获取失败，
+   * 避免主节点故障切换后锁丢失，代价是每次获取增加一次复制往返
+   * @param replicas 副本数量，0 表示不等待
+   * @param timeoutMills 等待超时时长，单位毫秒，必须大于 0
+   * @return chain 对象
+   */
+  public SharedLockBuilder replicas(int replicas, long timeoutMills){
+    if (replicas < 0 || (replicas > 0 && timeoutMills <= 0)) {
+      throw new IllegalArgumentException("副本数量不能小于 0，等待副本确认的超时时长必须大于 0");
+    }
+    this.replicas = replicas;
+    this.replicaTimeoutMills = timeoutMills;
+    return this;
+  }
+
   /**
    * 添加多个装饰者
    * @param classes 装饰者类
@@ -98,17 +231,96 @@ public class SharedLockBuilder {
   }
 
   /**
-   * 开始生成
-   * @return
+   * 开始生成，许可总数大于 1 时与 {@link #buildSemaphore()} 相同，返回的锁可以转换成 {@link ISharedSemaphore}
+   * @return 共享锁
+   * @throws IllegalStateException 组合 key、信号量、读写模式同时设置了多个
    */
   public ISharedLock build(){
-    DefaultSharedLock lock = new DefaultSharedLock(key, providerName, lockSeconds);
+    if (!keys.isEmpty() && (permits > 1 || readWriteMode != null)) {
+      throw new IllegalStateException("组合锁不支持信号量和读写模式");
+    }
+    if (permits > 1) {
+      return buildSemaphore();
+    }
+    DefaultSharedLock lock;
+    if (!keys.isEmpty()) {
+      lock = new MultiSharedLock(allKeys(), providerName, lockSeconds);
+    } else if (readWriteMode != null) {
+      lock = new ReadWriteSharedLock(encodedKey(), providerName, lockSeconds, readWriteMode);
+    } else {
+      lock = new DefaultSharedLock(encodedKey(), providerName, lockSeconds);
+    }
     lock.setProviderConfigurer(providerConfigurer);
+    lock.setAsyncRelease(asyncRelease);
+    lock.setOwner(owner);
+    lock.setReplicas(replicas, replicaTimeoutMills);
     // 来一个 装饰者
     return SharedlockUtils.mergeEnv(lock, decorators);
   }
 
 
+  /**
+   * 生成信号量，可以一次获取多个许可，信号量不可重入，不添加装饰者
+   * @return 信号量
+   * @throws IllegalStateException 设置了组合 key 或者读写模式
+   */
+  public ISharedSemaphore buildSemaphore(){
+    if (!keys.isEmpty() || readWriteMode != null) {
+      throw new IllegalStateException("信号量不支持组合 key 和读写模式");
+    }
+    SemaphoreSharedLock semaphore = new SemaphoreSharedLock(encodedKey(), providerName, lockSeconds, permits);
+    semaphore.setProviderConfigurer(providerConfigurer);
+    semaphore.setAsyncRelease(asyncRelease);
+    semaphore.setOwner(owner);
+    semaphore.setReplicas(replicas, replicaTimeoutMills);
+    return SharedlockUtils.mergeEnv(semaphore);
+  }
+
+  /**
+   * 生成读写锁，通过 {@link SharedReadWriteLock#readLock()} 和 {@link SharedReadWriteLock#writeLock()} 获取读锁和写锁
+   * @return 读写锁
+   * @throws IllegalStateException 设置了组合 key 或者信号量
+   */
+  public SharedReadWriteLock buildReadWrite(){
+    if (!keys.isEmpty() || permits > 1) {
+      throw new IllegalStateException("读写锁不支持组合 key 和信号量");
+    }
+    return new SharedReadWriteLock(encodedKey(), providerName, lockSeconds, providerConfigurer, decorators);
+  }
+
+
+  /**
+   * 组合锁的全部 key
+   * @return key 列表
+   */
+  private Set<String> allKeys(){
+    ISharedLockKeyEncoder encoder = keyEncoder();
+    Set<String> all = new HashSet<>(keys.size() + 1);
+    for (String item : keys) {
+      all.add(encoder.encode(item));
+    }
+    if (key != null) {
+      all.add(encoder.encode(key));
+    }
+    return all;
+  }
+
+  /**
+   * 编码后的 key
+   * @return key，未设置时返回 null
+   */
+  private String encodedKey(){
+    return key == null ? null : keyEncoder().encode(key);
+  }
+
+  /**
+   * 当前使用的 key 编码策略
+   * @return 编码策略
+   */
+  private ISharedLockKeyEncoder keyEncoder(){
+    return keyEncoder == null ? SharedLockEnvironment.getInstance().getKeyEncoder() : keyEncoder;
+  }
+
   /**
    * 生成 一个 builder
    * @return builder 对象
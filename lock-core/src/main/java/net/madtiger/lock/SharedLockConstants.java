@@ -11,4 +11,14 @@ public class SharedLockConstants {
    */
   public static final String PROPERTIES_PREFIX = "net.madtiger.shared.lock.";
 
+  /**
+   * 未获取锁或者服务提供者不支持时的 fencing token
+   */
+  public static final long NO_FENCING_TOKEN = -1;
+
+  /**
+   * 服务提供者未返回持有者剩余持有时长
+   */
+  public static final long UNKNOWN_HOLDER_TTL = -1;
+
 }
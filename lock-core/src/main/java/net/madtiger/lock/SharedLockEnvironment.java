@@ -45,6 +45,11 @@ public class SharedLockEnvironment {
    */
   private Map<Class<ISharedLockProvider>, IProviderConfigurer> configurerMap = new HashMap<>(16);
 
+  /**
+   * key 编码策略
+   */
+  private ISharedLockKeyEncoder keyEncoder = ISharedLockKeyEncoder.IDENTITY;
+
   private  SharedLockEnvironment(){
     // 可重入
     addDecoratorClasses(ReentrantLockDecorator.class);
@@ -95,6 +100,25 @@ public class SharedLockEnvironment {
     return lockSeconds;
   }
 
+  /**
+   * 设置 key 编码策略，对之后通过 {@link SharedLockBuilder} 创建的锁生效
+   * @param keyEncoder 编码策略
+   * @return self
+   */
+  public SharedLockEnvironment keyEncoder(ISharedLockKeyEncoder keyEncoder){
+    Objects.requireNonNull(keyEncoder);
+    this.keyEncoder = keyEncoder;
+    return this;
+  }
+
+  /**
+   * 获取 key 编码策略
+   * @return 编码策略，默认不转换
+   */
+  public ISharedLockKeyEncoder getKeyEncoder(){
+    return keyEncoder;
+  }
+
   /**
    * 清空原始的 装饰者
    * @return self
@@ -136,7 +160,14 @@ public class SharedLockEnvironment {
    */
   public <T extends ISharedLockProvider, K extends IProviderConfigurer> K getConfigurer(Class<T> providerClass){
     Objects.requireNonNull(providerClass);
-    return (K) configurerMap.get(providerClass);
+    // 子类服务提供者使用父类的配置
+    for (Class<?> clazz = providerClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+      IProviderConfigurer configurer = configurerMap.get(clazz);
+      if (configurer != null) {
+        return (K) configurer;
+      }
+    }
+    return null;
   }
 
   /**
@@ -0,0 +1,81 @@
+package net.madtiger.lock;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 锁持有者 token 生成器
+ * <p>
+ *   token 由 JVM 实例前缀、线程序号、线程内计数器组成，例如 {@code 3w5e11264sgsf:1a:0}。实例前缀只在类加载时通过 {@link SecureRandom} 生成一次，
+ *   线程序号在线程首次使用时分配，之后每次生成只递增线程内的计数器，不再争用随机数，生成的 token 只包含 ASCII 字符，比 UUID 短一半左右
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public final class SharedLockOwnerToken {
+
+  /**
+   * 分隔符
+   */
+  private static final char SEPARATOR = ':';
+
+  /**
+   * JVM 实例前缀，不同实例之间通过 63 位随机数区分
+   */
+  private static final String INSTANCE_PREFIX = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, Character.MAX_RADIX) + SEPARATOR;
+
+  /**
+   * 线程序号
+   */
+  private static final AtomicLong THREAD_SLOTS = new AtomicLong();
+
+  /**
+   * 当前线程的生成器
+   */
+  private static final ThreadLocal<Slot> SLOTS = ThreadLocal.withInitial(Slot::new);
+
+  private SharedLockOwnerToken() {
+  }
+
+  /**
+   * 生成一个新的持有者 token，当前 JVM 内唯一，不同 JVM 之间以极高概率唯一
+   * @return token
+   */
+  public static String next() {
+    return SLOTS.get().next();
+  }
+
+  /**
+   * 当前线程的持有者标识，由 JVM 实例前缀和线程序号组成，同一个线程一直不变，不会与 {@link #next()} 生成的 token 重复
+   * @return 持有者标识
+   */
+  public static String threadOwner() {
+    return SLOTS.get().owner;
+  }
+
+  /**
+   * 线程内的生成器，只被所属线程访问
+   */
+  private static final class Slot {
+
+    /**
+     * 实例前缀 + 线程序号
+     */
+    private final String owner = INSTANCE_PREFIX + Long.toString(THREAD_SLOTS.incrementAndGet(), Character.MAX_RADIX);
+
+    /**
+     * token 前缀
+     */
+    private final String prefix = owner + SEPARATOR;
+
+    /**
+     * 线程内计数器
+     */
+    private long counter;
+
+    String next() {
+      return prefix + Long.toString(counter ++, Character.MAX_RADIX);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package net.madtiger.lock;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台释放锁的线程池
+ * <p>
+ *   线程数和队列长度都有上限，队列满时由调用线程同步释放，释放任务不会被丢弃
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public final class SharedLockReleaser {
+
+  /**
+   * 释放线程池
+   */
+  private static final ThreadPoolExecutor EXECUTOR;
+
+  static {
+    AtomicInteger index = new AtomicInteger();
+    int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(SharedLockReleaser.QUEUE_CAPACITY), runnable -> {
+      Thread thread = new Thread(runnable, "shared-lock-releaser-" + index.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }, new CallerRunsPolicy());
+    EXECUTOR.allowCoreThreadTimeOut(true);
+  }
+
+  private SharedLockReleaser() {
+  }
+
+  /**
+   * 在后台执行释放
+   * @param release 释放操作
+   * @return 释放完成后完成
+   */
+  public static CompletableFuture<Void> release(Runnable release) {
+    return CompletableFuture.runAsync(release, EXECUTOR);
+  }
+
+  /**
+   * 等待释放的最大任务数
+   */
+  private static final int QUEUE_CAPACITY = 4096;
+}
@@ -0,0 +1,107 @@
+package net.madtiger.lock;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 异步获取锁使用的定时器，等待期间不占用线程
+ * <p>
+ *   整个 JVM 共用一个调度线程，只负责到期唤醒；不支持异步的服务提供者的同步调用交给共用的工作线程池执行。
+ *   工作线程池的线程数和队列都有上限，队列满时 {@link #supply(Supplier)} 返回异常完成的 future，不会在调用线程（可能是调度线程或者 netty 线程）中执行同步调用；
+ *   只有原生异步的服务提供者（例如 lettuce）不经过工作线程，不受此限制
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public final class SharedLockTimer {
+
+  /**
+   * 调度线程
+   */
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(daemonFactory("shared-lock-timer"));
+
+  /**
+   * 工作线程，执行阻塞的同步调用，线程数是 CPU 核数的 2 倍，至少 4 个
+   */
+  private static final ThreadPoolExecutor WORKERS;
+
+  static {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    WORKERS = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(SharedLockTimer.QUEUE_CAPACITY),
+        daemonFactory("shared-lock-async"), new AbortPolicy());
+    WORKERS.allowCoreThreadTimeOut(true);
+  }
+
+  private SharedLockTimer() {
+  }
+
+  /**
+   * 延迟一段时间后完成
+   * @param mills 延迟时间，单位毫秒，小于等于 0 时立即完成
+   * @return 到期后完成的 future，在调度线程中完成，后续操作不能阻塞
+   */
+  public static CompletableFuture<Void> delay(long mills) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (mills <= 0) {
+      future.complete(null);
+      return future;
+    }
+    SCHEDULER.schedule(() -> future.complete(null), mills, TimeUnit.MILLISECONDS);
+    return future;
+  }
+
+  /**
+   * 在工作线程中执行同步调用
+   * @param supplier 同步调用
+   * @param <T> 结果类型
+   * @return 执行结果，工作线程池已满时异常完成，异常是 {@link RejectedExecutionException}
+   */
+  public static <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, WORKERS);
+    } catch (RejectedExecutionException e) {
+      return failed(e);
+    }
+  }
+
+  /**
+   * 生成一个异常完成的 future
+   * @param ex 异常
+   * @param <T> 结果类型
+   * @return future
+   */
+  public static <T> CompletableFuture<T> failed(Throwable ex) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(ex);
+    return future;
+  }
+
+  /**
+   * 守护线程工厂
+   * @param name 线程名前缀
+   * @return 线程工厂
+   */
+  private static ThreadFactory daemonFactory(String name) {
+    AtomicInteger index = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + index.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * 等待执行的最大同步调用数
+   */
+  private static final int QUEUE_CAPACITY = 4096;
+}
@@ -0,0 +1,112 @@
+package net.madtiger.lock;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import net.madtiger.lock.provider.IProviderConfigurer;
+
+/**
+ * 分布式读写锁，同一个 key 的读锁可以被多个持有者同时持有，写锁与所有读锁和写锁互斥
+ * <p>
+ *   共享锁只能使用一次，所以每次调用 {@link #readLock()} 或 {@link #writeLock()} 都会生成一个新的锁，
+ *   不支持读锁升级为写锁，也不支持写锁降级为读锁。服务提供者需要实现 {@link net.madtiger.lock.provider.ISharedReadWriteLockProvider}
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class SharedReadWriteLock {
+
+  /**
+   * 锁的资源
+   */
+  private final String key;
+
+  /**
+   * 服务提供者名称
+   */
+  private final String providerName;
+
+  /**
+   * 资源锁定时长, 单位秒
+   */
+  private final int lockSeconds;
+
+  /**
+   * 服务提供商配置
+   */
+  private final IProviderConfigurer providerConfigurer;
+
+  /**
+   * 装饰者
+   */
+  private final Set<Class<? extends AbsSharedLockDecorator>> decorators;
+
+  /**
+   * 构造函数
+   *
+   * @param key 锁定的 key
+   * @param providerName 服务提供者名称
+   * @param lockSeconds 锁定时长
+   */
+  public SharedReadWriteLock(String key, String providerName, int lockSeconds) {
+    this(key, providerName, lockSeconds, null, Collections.emptySet());
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param key 锁定的 key
+   * @param providerName 服务提供者名称
+   * @param lockSeconds 锁定时长
+   * @param providerConfigurer 服务提供商配置
+   * @param decorators 装饰者
+   */
+  public SharedReadWriteLock(String key, String providerName, int lockSeconds, IProviderConfigurer providerConfigurer, Set<Class<? extends AbsSharedLockDecorator>> decorators) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(decorators);
+    this.key = key;
+    this.providerName = providerName;
+    this.lockSeconds = lockSeconds;
+    this.providerConfigurer = providerConfigurer;
+    this.decorators = new HashSet<>(decorators);
+  }
+
+  /**
+   * 获取锁的资源
+   * @return key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * 生成一个读锁
+   * @return 读锁
+   */
+  public ISharedLock readLock() {
+    return build(ReadWriteMode.READ);
+  }
+
+  /**
+   * 生成一个写锁
+   * @return 写锁
+   */
+  public ISharedLock writeLock() {
+    return build(ReadWriteMode.WRITE);
+  }
+
+  /**
+   * 生成指定模式的锁
+   * @param mode 模式
+   * @return 锁
+   */
+  private ISharedLock build(ReadWriteMode mode) {
+    ReadWriteSharedLock lock = new ReadWriteSharedLock(key, providerName, lockSeconds, mode);
+    if (providerConfigurer != null) {
+      lock.setProviderConfigurer(providerConfigurer);
+    }
+    return SharedlockUtils.mergeEnv(lock, decorators);
+  }
+}
@@ -1,5 +1,6 @@
 package net.madtiger.lock;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -7,7 +8,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import lombok.extern.slf4j.Slf4j;
+import net.madtiger.lock.decorator.ReentrantLockDecorator;
 import net.madtiger.lock.provider.IProviderConfigurer;
 import net.madtiger.lock.provider.ISharedLockProvider;
 import org.springframework.core.annotation.OrderUtils;
@@ -28,13 +32,66 @@ public class SharedlockUtils {
    * @return
    */
   public static byte[] stringToBytes(String str){
-    try{
-      return str == null ? null : str.getBytes("UTF8");
-    }catch (Throwable ex){
-      throw new IllegalArgumentException(ex);
+    return str == null ? null : str.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 字节数组转换成字符串
+   * @param bytes 字节数组
+   * @return 字符串
+   */
+  public static String bytesToString(byte[] bytes){
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 执行异步回调，回调抛出的异常转换成异常完成的 future
+   * @param callback 回调
+   * @param <T> 结果类型
+   * @return 回调结果
+   */
+  public static <T> CompletableFuture<T> callAsync(IDoCallback<? extends CompletionStage<T>> callback) {
+    try {
+      CompletionStage<T> stage = callback.callback();
+      return stage == null ? CompletableFuture.completedFuture(null) : stage.toCompletableFuture();
+    } catch (Throwable ex) {
+      return SharedLockTimer.failed(ex);
     }
   }
 
+  /**
+   * 计算获取失败后的休眠时长，已知持有者剩余持有时长时不会休眠到锁过期之后
+   * @param lock 等待的锁
+   * @param sleepMills 建议的休眠时长，单位毫秒
+   * @return 休眠时长，单位毫秒
+   */
+  public static long backoffMills(CompositeSharedLock lock, long sleepMills) {
+    long ttl = lock.getHolderTtlMills();
+    return ttl > 0 ? Math.min(sleepMills, ttl) : sleepMills;
+  }
+
+  /**
+   * 在后台释放锁，释放失败时在后台执行回滚，回滚的结果和异常只记录日志
+   * @param lock 共享锁
+   * @param rollback 回滚函数，可以为空
+   * @return 释放及回滚完成后完成
+   */
+  public static CompletableFuture<Void> releaseInBackground(ISharedLock lock, IDoCallback<?> rollback) {
+    return lock.unlockAsync().handle((v, ex) -> {
+      if (ex != null) {
+        log.error("共享锁 {} 后台释放失败", lock.getKey(), ex);
+      }
+      if (lock.getStatus() == SharedLockStatus.UNLOCK_FAIL && rollback != null) {
+        try {
+          rollback.callback();
+        } catch (Throwable e) {
+          log.error("共享锁 {} 后台回滚失败", lock.getKey(), e);
+        }
+      }
+      return null;
+    });
+  }
+
   /**
    * 装饰 共享锁服务
    * @param sharedLock 要包装的 服务
@@ -44,7 +101,17 @@ public class SharedlockUtils {
   public static synchronized ISharedLock mergeEnv(CompositeSharedLock sharedLock, Set<Class<? extends AbsSharedLockDecorator>> classes){
     Objects.requireNonNull(sharedLock);
     // 合并处理装饰者类
-    sharedLock = doMergeDecoratorClasses(sharedLock, classes);
+    return mergeEnv(doMergeDecoratorClasses(sharedLock, classes));
+  }
+
+  /**
+   * 只合并环境变量，不添加装饰者
+   * @param sharedLock 共享锁
+   * @param <T> 共享锁类型
+   * @return 原共享锁
+   */
+  public static synchronized <T extends CompositeSharedLock> T mergeEnv(T sharedLock){
+    Objects.requireNonNull(sharedLock);
     SharedLockEnvironment environment = SharedLockEnvironment.getInstance();
     // 设置 锁定时间
     if (sharedLock.getLockSeconds() <= 0 && environment.lockSeconds() > 0) {
@@ -76,6 +143,10 @@ public class SharedlockUtils {
     Objects.requireNonNull(classes);
     classes = new HashSet<>(classes);
     classes.addAll(SharedLockEnvironment.getInstance().getDecoratorClasses());
+    // 信号量不可重入，重入装饰者按 key 记录持有，会把嵌套获取和同 key 互斥锁的持有者当作已经持有许可
+    if (sharedLock instanceof ISharedSemaphore) {
+      classes.remove(ReentrantLockDecorator.class);
+    }
     if (CollectionUtils.isEmpty(classes)) {
       return sharedLock;
     }
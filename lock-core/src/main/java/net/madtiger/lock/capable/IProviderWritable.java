@@ -44,6 +44,42 @@ public interface IProviderWritable {
    */
   <K> void setProviderData(K data);
 
+  /**
+   * 获取指定的持有者标识，支持服务端可重入的服务提供者把相同持有者的多次获取视为重入，跨线程、跨进程传递同一个持有者即可重入
+   * @return 持有者标识，未指定时返回 null，由服务提供者生成
+   */
+  String getOwner();
+
+  /**
+   * 获取获取锁后要求确认写入的副本数量，支持的服务提供者在获取成功后等待副本确认，确认数量不足时回滚并视为获取失败
+   * @return 副本数量，0 表示不等待
+   */
+  int getReplicas();
+
+  /**
+   * 获取等待副本确认的超时时长
+   * @return 超时时长，单位毫秒
+   */
+  long getReplicaTimeoutMills();
+
+  /**
+   * 设置 fencing token，获取锁成功时由服务提供者调用
+   * @param fencingToken 单调递增的 token
+   */
+  void setFencingToken(long fencingToken);
+
+  /**
+   * 获取最近一次获取失败时当前持有者的剩余持有时长
+   * @return 剩余时长，单位毫秒，未知时返回 {@link net.madtiger.lock.SharedLockConstants#UNKNOWN_HOLDER_TTL}
+   */
+  long getHolderTtlMills();
+
+  /**
+   * 设置当前持有者的剩余持有时长，每次尝试获取后由服务提供者调用，等待锁释放时据此决定休眠时长
+   * @param holderTtlMills 剩余时长，单位毫秒，未知时传 {@link net.madtiger.lock.SharedLockConstants#UNKNOWN_HOLDER_TTL}
+   */
+  void setHolderTtlMills(long holderTtlMills);
+
   /**
    * 获取特定服务提供者的配置对象
    * @param <T> 类型
@@ -1,5 +1,7 @@
 package net.madtiger.lock.capable;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import net.madtiger.lock.IDoCallback;
 import net.madtiger.lock.exception.TimeoutSharedLockException;
@@ -100,4 +102,42 @@ public interface ISharedLockExecute {
     return execute(callback, time, unit);
   }
 
+  /**
+   * 异步委托执行，支持降级和回滚，等待期间不占用线程，业务执行结束后异步释放锁
+   * @param callback 获取锁成功执行的函数
+   * @param faultCallback 获取所失败后降级参数，=null 时，获取失败以 TimeoutSharedLockException 结束
+   * @param rollback 释放资源失败回退操作
+   * @param time 等待时间，小于等于 0 时只尝试一次
+   * @param unit 时间单位
+   * @param <T> 返回值类型
+   * @return 返回值
+   */
+  <T> CompletableFuture<T> executeAsync(IDoCallback<? extends CompletionStage<T>> callback, @Nullable IDoCallback<? extends CompletionStage<T>> faultCallback,
+      @Nullable IDoCallback<? extends CompletionStage<T>> rollback, int time, TimeUnit unit);
+
+  /**
+   * 异步委托执行，支持降级，等待期间不占用线程
+   * @param callback 获取锁成功执行的函数
+   * @param faultCallback 获取所失败后降级参数，=null 时，获取失败以 TimeoutSharedLockException 结束
+   * @param time 等待时间，小于等于 0 时只尝试一次
+   * @param unit 时间单位
+   * @param <T> 返回值类型
+   * @return 返回值
+   */
+  default <T> CompletableFuture<T> executeAsync(IDoCallback<? extends CompletionStage<T>> callback, @Nullable IDoCallback<? extends CompletionStage<T>> faultCallback, int time, TimeUnit unit) {
+    return executeAsync(callback, faultCallback, null, time, unit);
+  }
+
+  /**
+   * 异步委托执行，获取锁失败以 TimeoutSharedLockException 结束
+   * @param callback 获取锁成功执行的函数
+   * @param time 等待时间，小于等于 0 时只尝试一次
+   * @param unit 时间单位
+   * @param <T> 返回值类型
+   * @return 返回值
+   */
+  default <T> CompletableFuture<T> executeAsync(IDoCallback<? extends CompletionStage<T>> callback, int time, TimeUnit unit) {
+    return executeAsync(callback, null, time, unit);
+  }
+
 }
@@ -4,6 +4,7 @@ import static net.madtiger.lock.AbsSharedLockDecorator.ORDER_DEFAULT;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import net.madtiger.lock.AbsSharedLockDecorator;
@@ -37,6 +38,11 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
    */
   private long getLockTime;
 
+  /**
+   * 是否通过异步方式获取，异步获取的锁不登记到线程中
+   */
+  private boolean async;
+
   /**
    * 构造一个 包装器实例
    *
@@ -75,11 +81,30 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
     return log;
   }
 
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit) {
+    // 重入只在调用线程中判断
+    try {
+      if (exisitsByThread()) {
+        debugMessage("重用锁成功");
+        return CompletableFuture.completedFuture(true);
+      }
+    } catch (TimeoutSharedLockException e) {
+      currentStatus = SharedLockStatus.CANCEL;
+      delegate.interrupted();
+      debugMessage("锁获取失败且取消成功");
+      return CompletableFuture.completedFuture(false);
+    }
+    // 异步获取的锁可能在其他线程完成，不登记到当前线程
+    async = true;
+    return delegate.tryLockAsync(time, unit);
+  }
+
   @Override
   public void unlock() {
 
     // 如果当前清理成功
-    if (clearFromThread()) {
+    if (clearFromThread() || async) {
       delegate.unlock();
       debugMessage("彻底释放锁成功");
     }else {
@@ -87,6 +112,15 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
     }
   }
 
+  @Override
+  public CompletableFuture<Void> unlockAsync() {
+    if (clearFromThread() || async) {
+      return delegate.unlockAsync();
+    }
+    debugMessage("释放锁成功");
+    return CompletableFuture.completedFuture(null);
+  }
+
 
   /**
    * 检查当前线程是否已经获取了锁
@@ -94,7 +128,7 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
    */
   boolean exisitsByThread() throws TimeoutSharedLockException {
     // 获取锁
-    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getKey());
+    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getReentrantKey());
     if (lock == null){
       return false;
     }
@@ -106,6 +140,26 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
     return true;
   }
 
+  @Override
+  public boolean extend(long time, TimeUnit unit) {
+    // 重用的锁交由真正持有锁的实例延长
+    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getReentrantKey());
+    if (lock != null && lock != this) {
+      return lock.extend(time, unit);
+    }
+    return super.extend(time, unit);
+  }
+
+  @Override
+  public long getFencingToken() {
+    // 重用的锁返回真正持有锁的实例的 token
+    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getReentrantKey());
+    if (lock != null && lock != this) {
+      return lock.getFencingToken();
+    }
+    return super.getFencingToken();
+  }
+
   @Override
   public SharedLockStatus getStatus() {
     return currentStatus == null ? super.getStatus() : currentStatus;
@@ -116,7 +170,7 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
    */
   void setToThread(){
     getLockTime = System.currentTimeMillis();
-    THREAD_LOCKS.get().put(getKey(), this);
+    THREAD_LOCKS.get().put(getReentrantKey(), this);
   }
 
   /**
@@ -124,9 +178,9 @@ public class ReentrantLockDecorator extends AbsSharedLockDecorator {
    */
   boolean clearFromThread(){
     // 获取锁
-    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getKey());
+    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getReentrantKey());
     if (lock != null && lock == this){
-      THREAD_LOCKS.get().remove(getKey());
+      THREAD_LOCKS.get().remove(getReentrantKey());
       return true;
     }
     return false;
@@ -43,7 +43,11 @@ public class SpinLockDecorator extends AbsSharedLockDecorator {
     }
     // 如果小于0 则降级成 try lock
     if (time <= 0){
-      return getProvider().doAcquire(this);
+      if (acquireOnce()) {
+        return true;
+      }
+      getProvider().cancelAcquire(this);
+      return false;
     }
     // 获取成功
     try{
@@ -55,10 +59,12 @@ public class SpinLockDecorator extends AbsSharedLockDecorator {
         if (getStatus() == NEW) {
           setStatus(TIMEOUT);
         }
+        getProvider().cancelAcquire(this);
         return false;
       }
     }catch (TimeoutSharedLockException timeout){
       setStatus(TIMEOUT);
+      getProvider().cancelAcquire(this);
       return false;
     }
   }
@@ -90,7 +96,7 @@ public class SpinLockDecorator extends AbsSharedLockDecorator {
         }
         checkTimeout(getKey(), timeout);
         // 如果获取成功则返回成功
-        if (getProvider().doAcquire(this)){
+        if (acquireOnce()){
           debugMessage(String.format(" %s次获取成功，自旋 %s 次", timesCount, SPIN_TIMES - times + 1));
           return true;
         }
@@ -100,10 +106,15 @@ public class SpinLockDecorator extends AbsSharedLockDecorator {
         timesCount ++;
         debugMessage(String.format(" %s次获取失败，自旋 %s 次", timesCount, SPIN_TIMES - times));
       }
-      // 随机休眠
+      // 持有者在超时前不会释放，直接放弃
+      if (!getProvider().isWorthWaiting(this, timeout - System.currentTimeMillis())) {
+        debugMessage(String.format(" %s次获取失败，持有者剩余 %s 毫秒，超过等待时长", timesCount, getHolderTtlMills()));
+        return false;
+      }
+      // 随机休眠，支持释放通知的服务提供者会在锁释放时提前唤醒
       try {
-        debugMessage(String.format(" %s次获取失败，自旋失败，开始随机休眠", timesCount));
-        Thread.sleep(MIN_SLEEP_MILLS + (long) ((MAX_SLEEP_MILLS - MIN_SLEEP_MILLS) * Math.random()));
+        debugMessage(String.format(" %s次获取失败，自旋失败，开始等待锁释放", timesCount));
+        getProvider().awaitRelease(this, MIN_SLEEP_MILLS + (long) ((MAX_SLEEP_MILLS - MIN_SLEEP_MILLS) * Math.random()), timeout - System.currentTimeMillis());
       } catch (Exception e) {
         return  false;
       }
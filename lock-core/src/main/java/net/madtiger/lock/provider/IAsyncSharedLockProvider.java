@@ -0,0 +1,40 @@
+package net.madtiger.lock.provider;
+
+import java.util.concurrent.CompletableFuture;
+import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.SharedLockTimer;
+
+/**
+ * 支持异步调用的服务提供者接口，所有方法都不能阻塞调用线程
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public interface IAsyncSharedLockProvider extends ISharedLockProvider {
+
+  /**
+   * 异步尝试获取一次锁，成功时通过 {@link CompositeSharedLock#setFencingToken(long)} 返回本次的 fencing token
+   * @param lock 需要获取锁的对象
+   * @return 获取结果
+   */
+  CompletableFuture<Boolean> doAcquireAsync(CompositeSharedLock lock);
+
+  /**
+   * 异步释放锁
+   * @param lock 需要释放锁的对象
+   * @return 释放结果
+   */
+  CompletableFuture<Boolean> doReleaseAsync(CompositeSharedLock lock);
+
+  /**
+   * 异步放弃获取，默认在工作线程中调用 {@link #cancelAcquire(CompositeSharedLock)}，避免在 I/O 线程中阻塞
+   * @param lock 放弃获取的锁对象
+   * @return 完成结果
+   */
+  default CompletableFuture<Void> cancelAcquireAsync(CompositeSharedLock lock) {
+    return SharedLockTimer.supply(() -> {
+      cancelAcquire(lock);
+      return null;
+    });
+  }
+}
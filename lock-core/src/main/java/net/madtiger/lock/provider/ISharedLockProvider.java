@@ -7,9 +7,14 @@ package net.madtiger.lock.provider;
  * @version 1.2.0
  */
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import net.madtiger.lock.CompositeSharedLock;
 import net.madtiger.lock.ISharedLock;
+import net.madtiger.lock.SharedLockTimer;
+import net.madtiger.lock.SharedlockUtils;
 import net.madtiger.lock.exception.UnLockFailSharedLockException;
 
 /**
@@ -21,14 +26,14 @@ public interface ISharedLockProvider {
 
 
   /**
-   * 立即获取锁
+   * 立即获取锁，成功时通过 {@link CompositeSharedLock#setFencingToken(long)} 返回本次的 fencing token
    * @param lock 需要获取所的对象
    * @return 获取所结果
    */
   boolean doAcquire(CompositeSharedLock lock);
 
   /**
-   * 特定时间内获取锁
+   * 特定时间内获取锁，成功时通过 {@link CompositeSharedLock#setFencingToken(long)} 返回本次的 fencing token
    * @param lock 需要获取所的对象
    * @param time 时间
    * @param unit 单位
@@ -44,4 +49,104 @@ public interface ISharedLockProvider {
    */
   boolean doRelease(CompositeSharedLock lock) throws UnLockFailSharedLockException;
 
+  /**
+   * 原子获取多个锁，要么全部获取成功，要么全部失败，传入的锁已按 key 排序
+   * <p>
+   *   默认按顺序逐个获取，失败时释放已获取的锁，支持批量操作的服务提供者应覆盖此方法一次完成
+   * </p>
+   * @param locks 需要获取的锁，每个 key 一个
+   * @return 是否全部获取成功
+   */
+  default boolean doAcquireAll(List<CompositeSharedLock> locks) {
+    List<CompositeSharedLock> acquired = new ArrayList<>(locks.size());
+    for (CompositeSharedLock lock : locks) {
+      if (!doAcquire(lock)) {
+        // 回滚已获取的锁
+        try {
+          doReleaseAll(acquired);
+        } catch (UnLockFailSharedLockException e) {
+          // 释放失败的锁等待过期
+        }
+        return false;
+      }
+      acquired.add(lock);
+    }
+    return true;
+  }
+
+  /**
+   * 释放多个锁
+   * @param locks 通过 {@link #doAcquireAll(List)} 获取的锁
+   * @return 是否全部释放成功
+   * @throws UnLockFailSharedLockException 释放失败
+   */
+  default boolean doReleaseAll(List<CompositeSharedLock> locks) throws UnLockFailSharedLockException {
+    boolean released = true;
+    for (CompositeSharedLock lock : locks) {
+      released = doRelease(lock) && released;
+    }
+    return released;
+  }
+
+  /**
+   * 延长锁的持有时间，只有当前持有者可以延长
+   * @param lock 已持有的锁对象
+   * @param time 新的持有时长
+   * @param unit 单位
+   * @return 是否延长成功
+   */
+  default boolean doExtend(CompositeSharedLock lock, long time, TimeUnit unit) {
+    throw new UnsupportedOperationException(String.format("%s 不支持 extend 方法", getClass().getSimpleName()));
+  }
+
+  /**
+   * 放弃获取锁，获取超时或者被取消时调用，用于清理获取过程中留下的排队等状态，默认不处理
+   * @param lock 放弃获取的锁对象
+   */
+  default void cancelAcquire(CompositeSharedLock lock) {
+  }
+
+  /**
+   * 获取锁失败后等待锁被释放，默认直接休眠，支持释放通知的服务提供者可以在锁释放时提前唤醒
+   * @param lock 等待的锁对象
+   * @param sleepMills 建议的休眠时长，单位毫秒
+   * @param maxWaitMills 剩余可等待时长，单位毫秒
+   * @throws InterruptedException 等待被中断
+   */
+  default void awaitRelease(CompositeSharedLock lock, long sleepMills, long maxWaitMills) throws InterruptedException {
+    long mills = Math.min(SharedlockUtils.backoffMills(lock, sleepMills), maxWaitMills);
+    if (mills > 0) {
+      Thread.sleep(mills);
+    }
+  }
+
+  /**
+   * 异步等待锁被释放，等待期间不占用线程，默认由定时器到期唤醒
+   * @param lock 等待的锁对象
+   * @param sleepMills 建议的等待时长，单位毫秒
+   * @param maxWaitMills 剩余可等待时长，单位毫秒
+   * @return 等待结束后完成
+   */
+  default CompletableFuture<Void> awaitReleaseAsync(CompositeSharedLock lock, long sleepMills, long maxWaitMills) {
+    return SharedLockTimer.delay(Math.min(SharedlockUtils.backoffMills(lock, sleepMills), maxWaitMills));
+  }
+
+  /**
+   * 获取失败后是否值得继续等待，持有者剩余持有时长超过剩余可等待时长时可以直接放弃，默认总是等待
+   * @param lock 等待的锁对象
+   * @param maxWaitMills 剩余可等待时长，单位毫秒
+   * @return 是否继续等待
+   */
+  default boolean isWorthWaiting(CompositeSharedLock lock, long maxWaitMills) {
+    return true;
+  }
+
+  /**
+   * 锁是否和获取锁的线程绑定，绑定的锁必须在同一个线程中获取和释放，异步方法会退化成在调用线程中同步执行
+   * @return 是否绑定线程
+   */
+  default boolean isThreadBound() {
+    return false;
+  }
+
 }
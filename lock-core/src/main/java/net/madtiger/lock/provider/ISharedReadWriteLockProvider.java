@@ -0,0 +1,44 @@
+package net.madtiger.lock.provider;
+
+import java.util.concurrent.TimeUnit;
+import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.ReadWriteMode;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+
+/**
+ * 支持读写锁的服务提供者接口，同一个 key 的读锁可以同时持有，写锁与所有锁互斥
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public interface ISharedReadWriteLockProvider extends ISharedLockProvider {
+
+  /**
+   * 立即获取读锁或写锁，成功时通过 {@link CompositeSharedLock#setFencingToken(long)} 返回本次的 fencing token
+   * @param lock 需要获取锁的对象
+   * @param mode 模式
+   * @return 获取结果
+   */
+  boolean doAcquire(CompositeSharedLock lock, ReadWriteMode mode);
+
+  /**
+   * 释放读锁或写锁，只有持有者可以释放
+   * @param lock 需要释放锁的对象
+   * @param mode 模式
+   * @return 释放结果
+   * @throws UnLockFailSharedLockException 释放失败
+   */
+  boolean doRelease(CompositeSharedLock lock, ReadWriteMode mode) throws UnLockFailSharedLockException;
+
+  /**
+   * 延长读锁或写锁的持有时间，只有当前持有者可以延长
+   * @param lock 已持有的锁对象
+   * @param mode 模式
+   * @param time 新的持有时长
+   * @param unit 单位
+   * @return 是否延长成功
+   */
+  default boolean doExtend(CompositeSharedLock lock, ReadWriteMode mode, long time, TimeUnit unit) {
+    throw new UnsupportedOperationException(String.format("%s 不支持读写锁的 extend 方法", getClass().getSimpleName()));
+  }
+}
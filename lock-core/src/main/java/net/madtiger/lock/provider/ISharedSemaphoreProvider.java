@@ -0,0 +1,52 @@
+package net.madtiger.lock.provider;
+
+import java.util.concurrent.TimeUnit;
+import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+
+/**
+ * 支持信号量的服务提供者接口，同一个 key 最多同时发放指定数量的许可
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public interface ISharedSemaphoreProvider extends ISharedLockProvider {
+
+  /**
+   * 立即获取多个许可，剩余许可不足时失败，成功时通过 {@link CompositeSharedLock#setFencingToken(long)} 返回本次的 fencing token
+   * @param lock 需要获取许可的对象
+   * @param permits 本次获取的许可数量
+   * @param totalPermits 许可总数
+   * @return 获取结果
+   */
+  boolean doAcquirePermits(CompositeSharedLock lock, int permits, int totalPermits);
+
+  /**
+   * 释放本次获取的全部许可，只有持有者可以释放
+   * @param lock 已获取许可的对象
+   * @param permits 本次获取的许可数量
+   * @return 释放结果
+   * @throws UnLockFailSharedLockException 释放失败
+   */
+  boolean doReleasePermits(CompositeSharedLock lock, int permits) throws UnLockFailSharedLockException;
+
+  /**
+   * 获取剩余的许可数量
+   * @param lock 信号量对象
+   * @param totalPermits 许可总数
+   * @return 剩余数量
+   */
+  int availablePermits(CompositeSharedLock lock, int totalPermits);
+
+  /**
+   * 延长许可的持有时间，只有当前持有者可以延长
+   * @param lock 已获取许可的对象
+   * @param permits 本次获取的许可数量
+   * @param time 新的持有时长
+   * @param unit 单位
+   * @return 是否延长成功
+   */
+  default boolean doExtendPermits(CompositeSharedLock lock, int permits, long time, TimeUnit unit) {
+    throw new UnsupportedOperationException(String.format("%s 不支持信号量的 extend 方法", getClass().getSimpleName()));
+  }
+}
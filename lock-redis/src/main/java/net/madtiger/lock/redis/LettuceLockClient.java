@@ -0,0 +1,278 @@
+package net.madtiger.lock.redis;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import net.madtiger.lock.SharedlockUtils;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+/**
+ * 基于 lettuce 原生异步接口的共享锁客户端
+ * <p>
+ *   直接使用 lettuce 的共享连接发送 EVALSHA，请求结果通过 {@link CompletableFuture} 返回，不占用调用线程，
+ *   脚本不存在时使用 EVAL 重新执行一次，EVAL 会同时把脚本加载到 redis。
+ *   每次请求都从连接工厂获取当前的共享连接，连接工厂重置或者重建连接后不会继续使用已关闭的连接
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class LettuceLockClient {
+
+  /**
+   * 获取 lettuce 异步命令
+   */
+  private final Supplier<RedisClusterAsyncCommands<byte[], byte[]>> commands;
+
+  /**
+   * 创建一个 client
+   * @param commands lettuce 异步命令，必须是线程安全的共享连接
+   */
+  public LettuceLockClient(RedisClusterAsyncCommands<byte[], byte[]> commands) {
+    Objects.requireNonNull(commands);
+    this.commands = () -> commands;
+  }
+
+  /**
+   * 创建一个 client
+   * @param commands 获取 lettuce 异步命令，每次请求调用一次，必须返回线程安全的共享连接
+   */
+  public LettuceLockClient(Supplier<RedisClusterAsyncCommands<byte[], byte[]>> commands) {
+    Objects.requireNonNull(commands);
+    this.commands = commands;
+  }
+
+  /**
+   * 从 spring 的连接工厂创建 client，连接工厂必须开启共享连接
+   * @param connectionFactory lettuce 连接工厂
+   * @return client
+   */
+  public static LettuceLockClient create(LettuceConnectionFactory connectionFactory) {
+    if (!connectionFactory.getShareNativeConnection()) {
+      throw new IllegalArgumentException("lettuce 连接工厂必须开启 shareNativeConnection");
+    }
+    return new LettuceLockClient(() -> nativeCommands(connectionFactory));
+  }
+
+  /**
+   * 获取连接工厂当前的共享连接
+   * @param connectionFactory lettuce 连接工厂
+   * @return lettuce 异步命令
+   */
+  private static RedisClusterAsyncCommands<byte[], byte[]> nativeCommands(LettuceConnectionFactory connectionFactory) {
+    // 共享连接由连接工厂管理，关闭 LettuceConnection 不会关闭共享连接
+    LettuceConnection connection = (LettuceConnection) connectionFactory.getConnection();
+    try {
+      return connection.getNativeConnection();
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * 异步获取锁并生成 fencing token
+   * @param script lua脚本
+   * @param key 锁 key
+   * @param fencingKey fencing token 计数器 key
+   * @param value 锁的值，一般是持有者 token
+   * @param lockMills 锁定时长，单位毫秒
+   * @return fencing token，获取失败返回 0，脚本返回持有者剩余持有时长时返回其相反数
+   */
+  public CompletableFuture<Long> acquireAsync(RedisLockScript script, String key, String fencingKey, String value, long lockMills) {
+    byte[][] keys = new byte[][] {SharedlockUtils.stringToBytes(key), SharedlockUtils.stringToBytes(fencingKey)};
+    return acquireAsync(script, key, value, keys, SharedlockUtils.stringToBytes(value), SharedlockUtils.stringToBytes(String.valueOf(lockMills)));
+  }
+
+  /**
+   * 异步获取锁并生成 fencing token
+   * @param script lua脚本
+   * @param keys key 列表，第一个是锁 key
+   * @param args 脚本参数，第一个是锁的值，一般是持有者 token
+   * @return fencing token，获取失败返回 0，脚本返回持有者剩余持有时长时返回其相反数
+   */
+  public CompletableFuture<Long> acquireAsync(RedisLockScript script, List<String> keys, List<String> args) {
+    return acquireAsync(script, keys.get(0), args.get(0), toBytes(keys), toBytes(args));
+  }
+
+  /**
+   * 异步释放锁
+   * @param script lua脚本
+   * @param keys key 列表，第一个是锁 key
+   * @param args 脚本参数，第一个是锁的值，一般是持有者 token
+   * @return 释放结果
+   */
+  public CompletableFuture<Boolean> releaseAsync(RedisLockScript script, List<String> keys, List<String> args) {
+    return release(script, keys.get(0), toBytes(keys), toBytes(args));
+  }
+
+  /**
+   * 异步放弃排队
+   * @param script lua脚本
+   * @param keys key 列表，第一个是锁 key
+   * @param args 脚本参数，第一个是排队的 ticket
+   * @return 完成结果，失败时只记录日志，不抛出异常
+   */
+  public CompletableFuture<Void> cancelAsync(RedisLockScript script, List<String> keys, List<String> args) {
+    return this.<Long>eval(script, ScriptOutputType.INTEGER, toBytes(keys), toBytes(args))
+        .handle((value, ex) -> {
+          if (ex != null) {
+            log.error("lettuce -> {} 放弃排队失败", keys.get(0), ex);
+          }
+          return null;
+        });
+  }
+
+  /**
+   * 异步获取 key 的剩余过期时长 https://redis.io/commands/pttl
+   * @param key 锁 key
+   * @return 剩余过期时长，单位毫秒，key 不存在返回 -2，没有过期时间或者请求失败返回 -1
+   */
+  public CompletableFuture<Long> pttlAsync(String key) {
+    CompletableFuture<Long> result = new CompletableFuture<>();
+    try {
+      commands.get().pttl(SharedlockUtils.stringToBytes(key)).whenComplete((ttl, ex) -> {
+        if (ex != null) {
+          log.error("lettuce -> {} 查询剩余过期时长失败", key, ex);
+        }
+        result.complete(ex != null || ttl == null ? -1L : ttl);
+      });
+    } catch (RuntimeException e) {
+      log.error("lettuce -> {} 查询剩余过期时长失败", key, e);
+      result.complete(-1L);
+    }
+    return result;
+  }
+
+  /**
+   * 执行获取锁的脚本
+   * @param script lua脚本
+   * @param key 锁 key，用于日志
+   * @param value 锁的值，用于日志
+   * @param keys key
+   * @param values 参数
+   * @return fencing token，获取失败返回 0，脚本返回持有者剩余持有时长时返回其相反数
+   */
+  private CompletableFuture<Long> acquireAsync(RedisLockScript script, String key, String value, byte[][] keys, byte[]... values) {
+    return this.<Long>eval(script, ScriptOutputType.INTEGER, keys, values)
+        .handle((token, ex) -> {
+          if (ex != null) {
+            log.error("lettuce -> {} 锁获取超时", key, ex);
+            return 0L;
+          }
+          if (token != null && token > 0) {
+            log.debug("lettuce -> {} 获取锁{}数据成功，fencing token {}", key, value, token);
+            return token;
+          }
+          // 持有者剩余持有时长
+          return token != null && token < 0 ? token : 0L;
+        });
+  }
+
+  /**
+   * 异步释放锁
+   * @param script lua脚本
+   * @param key 锁 key
+   * @param args 脚本参数，第一个是锁的值，一般是持有者 token，第二个是可选的释放通知频道
+   * @return 释放结果
+   */
+  public CompletableFuture<Boolean> releaseAsync(RedisLockScript script, String key, String... args) {
+    byte[][] values = new byte[args.length][];
+    for (int i = 0; i < args.length; i ++) {
+      values[i] = SharedlockUtils.stringToBytes(args[i]);
+    }
+    return release(script, key, new byte[][] {SharedlockUtils.stringToBytes(key)}, values);
+  }
+
+  /**
+   * 执行释放锁的脚本
+   * @param script lua脚本
+   * @param key 锁 key，用于日志
+   * @param keys key
+   * @param values 参数
+   * @return 释放结果
+   */
+  private CompletableFuture<Boolean> release(RedisLockScript script, String key, byte[][] keys, byte[]... values) {
+    return this.<Boolean>eval(script, ScriptOutputType.BOOLEAN, keys, values)
+        .handle((released, ex) -> {
+          if (ex != null) {
+            log.error("lettuce -> {} 释放锁超时", key, ex);
+            return false;
+          }
+          if (Boolean.TRUE.equals(released)) {
+            log.debug("lettuce -> {} 释放锁成功", key);
+            return true;
+          }
+          return false;
+        });
+  }
+
+  /**
+   * 通过 EVALSHA 执行脚本，脚本不存在时使用 EVAL 重试一次
+   * @param script 脚本
+   * @param type 返回值类型
+   * @param keys key
+   * @param values 参数
+   * @param <T> 返回值类型
+   * @return 执行结果
+   */
+  private <T> CompletableFuture<T> eval(RedisLockScript script, ScriptOutputType type, byte[][] keys, byte[]... values) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    RedisClusterAsyncCommands<byte[], byte[]> commands;
+    try {
+      commands = this.commands.get();
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    commands.<T>evalsha(script.toString(), type, keys, values).whenComplete((value, ex) -> {
+      if (ex == null) {
+        result.complete(value);
+        return;
+      }
+      if (!isNoScript(ex)) {
+        result.completeExceptionally(ex);
+        return;
+      }
+      log.debug("lettuce -> 脚本 {} 不存在，重新加载", script);
+      commands.<T>eval(SharedlockUtils.bytesToString(script.getSource()), type, keys, values).whenComplete((retry, retryEx) -> {
+        if (retryEx == null) {
+          result.complete(retry);
+        } else {
+          result.completeExceptionally(retryEx);
+        }
+      });
+    });
+    return result;
+  }
+
+  /**
+   * 转换成 redis 参数
+   * @param values 字符串参数
+   * @return 字节参数
+   */
+  private static byte[][] toBytes(List<String> values) {
+    byte[][] bytes = new byte[values.size()][];
+    for (int i = 0; i < bytes.length; i ++) {
+      bytes[i] = SharedlockUtils.stringToBytes(values.get(i));
+    }
+    return bytes;
+  }
+
+  /**
+   * 是否是 NOSCRIPT 异常
+   * @param ex 异常
+   * @return 结果
+   */
+  private static boolean isNoScript(Throwable ex) {
+    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    return cause instanceof RedisNoScriptException || (cause.getMessage() != null && cause.getMessage().startsWith("NOSCRIPT"));
+  }
+}
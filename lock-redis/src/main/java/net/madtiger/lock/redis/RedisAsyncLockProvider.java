@@ -0,0 +1,108 @@
+package net.madtiger.lock.redis;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.SharedLockTimer;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.IAsyncSharedLockProvider;
+import org.springframework.util.StringUtils;
+
+/**
+ * 支持异步调用的 redis 共享锁服务
+ * <p>
+ *   同步接口和 {@link RedisLockProvider} 完全一致，异步接口通过 lettuce 原生异步命令执行相同的 lua 脚本，
+ *   等待锁释放时在通知或者定时器上挂起，整个获取过程不占用任何线程
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class RedisAsyncLockProvider extends RedisLockProvider implements IAsyncSharedLockProvider {
+
+  /**
+   * lettuce 异步 client
+   */
+  private final LettuceLockClient lettuceLockClient;
+
+  /**
+   * 构造函数
+   * @param lockRedisClient 同步 redis client
+   * @param lettuceLockClient lettuce 异步 client
+   * @param notifier 锁释放通知，可以为空
+   */
+  public RedisAsyncLockProvider(RedisLockClient lockRedisClient, LettuceLockClient lettuceLockClient, RedisLockNotifier notifier) {
+    super(lockRedisClient, notifier);
+    Objects.requireNonNull(lettuceLockClient);
+    this.lettuceLockClient = lettuceLockClient;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> doAcquireAsync(CompositeSharedLock lock) {
+    // 副本确认需要在同一个连接上紧跟获取脚本执行 WAIT，在工作线程中同步获取
+    if (lock.getReplicas() > 0) {
+      return SharedLockTimer.supply(() -> doAcquire(lock));
+    }
+    String uuid = ownerOf(lock);
+    long lockMills = TimeUnit.SECONDS.toMillis(lock.getLockSeconds());
+    CompletableFuture<Long> future = isQueued(lock)
+        ? lettuceLockClient.acquireAsync(FAIR_ACQUIRE_SCRIPT, fairKeys(lock), Arrays.asList(uuid, String.valueOf(lockMills), String.valueOf(FAIR_HEARTBEAT_MILLS)))
+        : lettuceLockClient.acquireAsync(acquireScript(lock), lock.getKey(), fencingKey(lock), uuid, lockMills);
+    return future.thenApply(token -> {
+      if (!acquired(lock, token)) {
+        return false;
+      }
+      lock.setProviderData(uuid);
+      lock.setFencingToken(fencingToken(lock, token));
+      watch(lock, uuid);
+      return true;
+    });
+  }
+
+  @Override
+  protected CompletableFuture<Long> holderTtlAsync(CompositeSharedLock lock) {
+    return lettuceLockClient.pttlAsync(lock.getKey());
+  }
+
+  @Override
+  public CompletableFuture<Void> cancelAcquireAsync(CompositeSharedLock lock) {
+    if (!isQueued(lock)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    String uuid = lock.getProviderData();
+    return lettuceLockClient.cancelAsync(FAIR_CANCEL_SCRIPT, fairKeys(lock), fairArgs(lock, uuid));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> doReleaseAsync(CompositeSharedLock lock) {
+    String uuid =  lock.getProviderData();
+    // 可重入锁需要根据剩余重入次数决定是否取消续期，在工作线程中同步释放
+    if (isReentrant(lock)) {
+      return SharedLockTimer.supply(() -> {
+        try {
+          return doRelease(lock);
+        } catch (UnLockFailSharedLockException e) {
+          throw new CompletionException(e);
+        }
+      });
+    }
+    if (StringUtils.isEmpty(uuid)) {
+      return SharedLockTimer.failed(new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey())));
+    }
+    unwatch(lock, uuid);
+    if (isQueued(lock)) {
+      return lettuceLockClient.releaseAsync(FAIR_RELEASE_SCRIPT, fairKeys(lock), fairArgs(lock, uuid));
+    }
+    String channel = releaseChannel(lock);
+    // lua 原子释放
+    if (channel == null) {
+      return lettuceLockClient.releaseAsync(RELEASE_SCRIPT, lock.getKey(), uuid);
+    }
+    return lettuceLockClient.releaseAsync(RELEASE_SCRIPT, lock.getKey(), uuid, channel);
+  }
+}
@@ -0,0 +1,61 @@
+package net.madtiger.lock.redis;
+
+/**
+ * 服务端临界区的执行结果，见 {@link RedisLockProvider#executeAtomically(RedisLockScript, java.util.List, java.util.List)}
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public final class RedisAtomicResult {
+
+  /**
+   * 是否执行了脚本
+   */
+  private final boolean executed;
+
+  /**
+   * 脚本返回值
+   */
+  private final Object value;
+
+  /**
+   * 锁被其他持有者持有时的剩余持有时长
+   */
+  private final long holderTtlMills;
+
+  RedisAtomicResult(boolean executed, Object value, long holderTtlMills) {
+    this.executed = executed;
+    this.value = value;
+    this.holderTtlMills = holderTtlMills;
+  }
+
+  /**
+   * 是否执行了脚本，锁被其他持有者持有时返回 false
+   * @return 结果
+   */
+  public boolean isExecuted() {
+    return executed;
+  }
+
+  /**
+   * 获取脚本返回值，整数是 {@link Long}，字符串是 {@link String}，表是 {@link java.util.List}
+   * @param <T> 类型
+   * @return 返回值，未执行或者脚本没有返回值时返回 null
+   */
+  public <T> T getValue() {
+    return (T) value;
+  }
+
+  /**
+   * 获取锁被其他持有者持有时的剩余持有时长
+   * @return 剩余时长，单位毫秒，执行成功或者未知时返回 {@link net.madtiger.lock.SharedLockConstants#UNKNOWN_HOLDER_TTL}
+   */
+  public long getHolderTtlMills() {
+    return holderTtlMills;
+  }
+
+  @Override
+  public String toString() {
+    return executed ? "executed: " + value : "held: " + holderTtlMills + "ms";
+  }
+}
@@ -0,0 +1,117 @@
+package net.madtiger.lock.redis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+/**
+ * redis cluster key 工具
+ * <p>
+ *   cluster 模式下 lua 脚本涉及的所有 key 必须在同一个 slot，否则返回 CROSSSLOT 错误。锁的关联 key（fencing token 计数器、公平锁队列等）
+ *   沿用锁 key 的 hash tag，锁 key 没有 hash tag 时把整个锁 key 作为 hash tag，包含 } 时使用与锁 key 同 slot 的 tag，保证与锁 key 在同一个 slot；
+ *   组合锁需要在一个脚本中原子获取时，key 应使用相同的 hash tag，例如 {@code {order:42}:stock}、{@code {order:42}:coupon}
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public final class RedisClusterKeys {
+
+  private RedisClusterKeys() {
+  }
+
+  /**
+   * 计算 key 所在的 slot
+   * @param key key
+   * @return slot
+   */
+  public static int slot(String key) {
+    return ClusterSlotHashUtil.calculateSlot(key);
+  }
+
+  /**
+   * key 是否包含有效的 hash tag，即第一个 { 之后的第一个 } 之间有内容
+   * @param key key
+   * @return 结果
+   */
+  public static boolean hasHashTag(String key) {
+    int start = key.indexOf('{');
+    if (start < 0) {
+      return false;
+    }
+    int end = key.indexOf('}', start + 1);
+    return end > start + 1;
+  }
+
+  /**
+   * 生成与 key 在同一个 slot 的关联 key
+   * @param key 锁 key
+   * @param suffix 关联 key 后缀
+   * @return 关联 key，锁 key 有 hash tag 时是 key + suffix，否则是 {key}suffix；
+   *   锁 key 包含 } 但没有有效 hash tag 时（例如 {@code a}b}、{@code {}x}）无法整体作为 hash tag，格式是 {tag}key + suffix，tag 所在的 slot 与 key 相同
+   */
+  public static String related(String key, String suffix) {
+    if (hasHashTag(key)) {
+      return key + suffix;
+    }
+    if (key.indexOf('}') >= 0) {
+      return '{' + SlotTags.TAGS[slot(key)] + '}' + key + suffix;
+    }
+    return '{' + key + '}' + suffix;
+  }
+
+  /**
+   * 生成与 key 在同一个 slot 的公共 key，同一个 slot 的所有 key 共用，用于不需要为每个 key 单独保存的数据，例如 fencing token 计数器
+   * @param key 锁 key
+   * @param name 公共 key 名称
+   * @return 公共 key，格式是 name{tag}，tag 所在的 slot 与 key 相同
+   */
+  public static String slotKey(String key, String name) {
+    return name + '{' + SlotTags.TAGS[slot(key)] + '}';
+  }
+
+  /**
+   * 按 slot 分组，slot 从小到大排列，每组内保持原有顺序
+   * @param items 需要分组的对象
+   * @param keyOf 获取对象的 key
+   * @param <T> 对象类型
+   * @return slot -> 对象列表
+   */
+  public static <T> SortedMap<Integer, List<T>> groupBySlot(Collection<T> items, Function<T, String> keyOf) {
+    SortedMap<Integer, List<T>> groups = new TreeMap<>();
+    for (T item : items) {
+      groups.computeIfAbsent(slot(keyOf.apply(item)), slot -> new ArrayList<>()).add(item);
+    }
+    return groups;
+  }
+
+  /**
+   * 每个 slot 对应的最短 hash tag，首次使用时计算
+   */
+  private static final class SlotTags {
+
+    private static final String[] TAGS = new String[SLOT_COUNT];
+
+    static {
+      int remaining = SLOT_COUNT;
+      // 按 36 进制递增枚举，直到每个 slot 都找到一个
+      for (long i = 0; remaining > 0; i ++) {
+        String tag = Long.toString(i, Character.MAX_RADIX);
+        int slot = slot(tag);
+        if (TAGS[slot] == null) {
+          TAGS[slot] = tag;
+          remaining --;
+        }
+      }
+    }
+  }
+
+  /**
+   * slot 数量
+   */
+  private static final int SLOT_COUNT = 16384;
+}
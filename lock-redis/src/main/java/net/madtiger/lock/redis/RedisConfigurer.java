@@ -0,0 +1,107 @@
+package net.madtiger.lock.redis;
+
+import lombok.Builder;
+import lombok.Getter;
+import net.madtiger.lock.provider.IProviderConfigurer;
+
+/**
+ * redis 配置
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Builder
+@Getter
+public class RedisConfigurer implements IProviderConfigurer<RedisConfigurer> {
+
+  /**
+   * 是否开启看门狗，开启后持有锁期间自动续期，直到释放
+   */
+  private Boolean watchdog;
+
+  /**
+   * 是否开启公平模式，开启后等待者按到达顺序排队，只有队首可以获取锁，只对互斥锁生效
+   */
+  private Boolean fair;
+
+  /**
+   * 是否开启快速失败，开启后互斥锁持有者的剩余持有时长超过剩余可等待时长时直接放弃，不再等待，
+   * 持有者提前释放时可能错过获取机会
+   */
+  private Boolean failFast;
+
+  /**
+   * 是否开启服务端可重入，开启后互斥锁是 持有者 -> 重入次数 的 hash，相同持有者（见 {@link net.madtiger.lock.SharedLockBuilder#owner(String)}）
+   * 在任意线程、进程中都可以重入，开启后公平模式不生效
+   */
+  private Boolean reentrant;
+
+  /**
+   * 是否生成 fencing token，默认关闭，关闭时锁的 fencing token 是 {@link net.madtiger.lock.SharedLockConstants#NO_FENCING_TOKEN}。
+   * 开启后每次获取递增一个计数器，计数器不过期，单机模式共用一个，cluster 模式每个 slot 一个，不会为每个锁 key 留下计数器
+   */
+  private Boolean fencing;
+
+  @Override
+  public void merge(RedisConfigurer configurer) {
+    if (configurer == null) {
+      return;
+    }
+    // 未设置的使用全局配置
+    if (watchdog == null) {
+      this.watchdog = configurer.getWatchdog();
+    }
+    if (fair == null) {
+      this.fair = configurer.getFair();
+    }
+    if (failFast == null) {
+      this.failFast = configurer.getFailFast();
+    }
+    if (reentrant == null) {
+      this.reentrant = configurer.getReentrant();
+    }
+    if (fencing == null) {
+      this.fencing = configurer.getFencing();
+    }
+  }
+
+  /**
+   * 是否开启看门狗
+   * @return 结果
+   */
+  public boolean isWatchdogEnabled() {
+    return Boolean.TRUE.equals(watchdog);
+  }
+
+  /**
+   * 是否开启公平模式
+   * @return 结果
+   */
+  public boolean isFairEnabled() {
+    return Boolean.TRUE.equals(fair);
+  }
+
+  /**
+   * 是否开启快速失败
+   * @return 结果
+   */
+  public boolean isFailFastEnabled() {
+    return Boolean.TRUE.equals(failFast);
+  }
+
+  /**
+   * 是否开启服务端可重入
+   * @return 结果
+   */
+  public boolean isReentrantEnabled() {
+    return Boolean.TRUE.equals(reentrant);
+  }
+
+  /**
+   * 是否生成 fencing token
+   * @return 结果
+   */
+  public boolean isFencingEnabled() {
+    return Boolean.TRUE.equals(fencing);
+  }
+}
@@ -0,0 +1,84 @@
+package net.madtiger.lock.redis;
+
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.madtiger.lock.HashedKeyEncoder;
+import net.madtiger.lock.ISharedLockKeyEncoder;
+
+/**
+ * redis hash tag key 模板，按正则表达式从逻辑 key 中取出 hash tag，使相关的 key 在 cluster 中落到同一个 slot
+ * <p>
+ *   正则表达式的第一个分组作为 hash tag，例如 {@code order:(\d+)} 把 {@code order:42:stock}、{@code order:42:coupon}
+ *   编码成 {@code order:{42}:stock}、{@code order:{42}:coupon}，组合锁可以在一个脚本中原子获取，
+ *   业务 key 使用相同的 hash tag 时也可以和锁 key 在同一个脚本中使用。
+ *   key 已经包含有效的 hash tag、不匹配或者分组为空时保持不变。
+ *   编码后再交给下一个编码策略，例如 {@link HashedKeyEncoder}，它会原样保留 hash tag
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class RedisHashTagKeyEncoder implements ISharedLockKeyEncoder {
+
+  /**
+   * hash tag 正则表达式
+   */
+  private final Pattern pattern;
+
+  /**
+   * 下一个编码策略
+   */
+  private final ISharedLockKeyEncoder next;
+
+  /**
+   * 构造函数，只加上 hash tag
+   * @param pattern hash tag 正则表达式，第一个分组作为 hash tag
+   */
+  public RedisHashTagKeyEncoder(String pattern) {
+    this(pattern, ISharedLockKeyEncoder.IDENTITY);
+  }
+
+  /**
+   * 构造函数
+   * @param pattern hash tag 正则表达式，第一个分组作为 hash tag
+   * @param next 加上 hash tag 之后使用的编码策略
+   */
+  public RedisHashTagKeyEncoder(String pattern, ISharedLockKeyEncoder next) {
+    Objects.requireNonNull(pattern);
+    Objects.requireNonNull(next);
+    this.pattern = Pattern.compile(pattern);
+    if (this.pattern.matcher("").groupCount() < 1) {
+      throw new IllegalArgumentException(String.format("hash tag 正则表达式 %s 必须包含一个分组", pattern));
+    }
+    this.next = next;
+  }
+
+  @Override
+  public String encode(String key) {
+    Objects.requireNonNull(key);
+    return next.encode(tag(key));
+  }
+
+  /**
+   * 加上 hash tag
+   * @param key 逻辑 key
+   * @return 加上 hash tag 的 key
+   */
+  private String tag(String key) {
+    if (RedisClusterKeys.hasHashTag(key)) {
+      return key;
+    }
+    Matcher matcher = pattern.matcher(key);
+    if (!matcher.find() || matcher.start(1) < 0 || matcher.end(1) == matcher.start(1)) {
+      return key;
+    }
+    String prefix = key.substring(0, matcher.start(1));
+    String tag = matcher.group(1);
+    // 前面已有 {、或者分组包含 } 时加上的 { } 不是第一个有效的 hash tag
+    if (prefix.indexOf('{') >= 0 || tag.indexOf('}') >= 0) {
+      return key;
+    }
+    return prefix + '{' + tag + '}' + key.substring(matcher.end(1));
+  }
+}
@@ -1,29 +1,136 @@
 package net.madtiger.lock.redis;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import net.madtiger.lock.SharedlockUtils;
+import org.springframework.data.redis.connection.RedisClusterConnection;
 import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
 import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
 import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.types.Expiration;
 
 /**
  * 基于spring 的共享锁客户端
+ * <p>
+ *   直接在 {@link RedisConnectionFactory} 的连接上使用字节数组收发，不经过 {@link RedisTemplate} 的序列化器。
+ *   可以传入只给共享锁使用的连接工厂（独立的连接池），避免锁请求排在批量缓存请求后面
+ * </p>
  * @author Fenghu.Shi
  * @version 1.0
  */
 @Slf4j
 public class RedisLockClient {
 
-  protected final RedisTemplate<String, String> redisTemplate;
+  /**
+   * 连接工厂
+   */
+  protected final RedisConnectionFactory connectionFactory;
 
   /**
-   * 创建一个 redis lock client
+   * lua 脚本注册中心
+   */
+  protected final RedisScriptRegistry scriptRegistry = new RedisScriptRegistry();
+
+  /**
+   * 是否是 cluster 连接，首次成功检查后缓存
+   */
+  private volatile Boolean cluster;
+
+  /**
+   * 副本确认耗时统计
+   */
+  private final RedisReplicaAckStats replicaAckStats = new RedisReplicaAckStats();
+
+  /**
+   * 创建一个 redis lock client，只使用 redisTemplate 的连接工厂，不使用它的序列化器
    * @param redisTemplate
    */
   public RedisLockClient(RedisTemplate<String, String> redisTemplate){
-    this.redisTemplate = redisTemplate;
+    this(redisTemplate.getConnectionFactory());
+  }
+
+  /**
+   * 创建一个 redis lock client
+   * @param connectionFactory 连接工厂，可以是只给共享锁使用的独立连接池
+   */
+  public RedisLockClient(RedisConnectionFactory connectionFactory){
+    Objects.requireNonNull(connectionFactory);
+    this.connectionFactory = connectionFactory;
+  }
+
+  /**
+   * 获取连接工厂
+   * @return 连接工厂
+   */
+  public RedisConnectionFactory getConnectionFactory() {
+    return connectionFactory;
+  }
+
+  /**
+   * 获取副本确认耗时统计
+   * @return 统计
+   */
+  public RedisReplicaAckStats getReplicaAckStats() {
+    return replicaAckStats;
+  }
+
+  /**
+   * 在一个连接上执行操作，执行完成后关闭连接
+   * @param action 操作
+   * @param <T> 结果类型
+   * @return 结果
+   */
+  protected <T> T execute(RedisCallback<T> action) {
+    RedisConnection connection = connectionFactory.getConnection();
+    try {
+      return action.doInRedis(connection);
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * 注册并预加载 lua 脚本 https://redis.io/commands/script-load
+   * 加载失败不影响使用，首次执行时会自动加载
+   * @param scripts 脚本
+   */
+  public void loadScripts(RedisLockScript... scripts) {
+    scriptRegistry.register(scripts);
+    try {
+      execute((RedisConnection connection) -> {
+        scriptRegistry.load(connection);
+        return null;
+      });
+    } catch (Exception e) {
+      log.warn("spring data redis -> lua 脚本预加载失败，首次执行时加载", e);
+    }
+  }
+
+  /**
+   * 是否连接的是 redis cluster，cluster 模式下多 key 脚本需要按 slot 分组
+   * @return 结果，检查失败时返回 false，下次调用重新检查
+   */
+  public boolean isCluster() {
+    Boolean result = cluster;
+    if (result == null) {
+      try {
+        result = Boolean.TRUE.equals(execute((RedisConnection connection) -> connection instanceof RedisClusterConnection));
+        cluster = result;
+      } catch (Exception e) {
+        log.warn("spring data redis -> 检查 cluster 模式失败", e);
+        return false;
+      }
+    }
+    return result;
   }
 
   /**
@@ -33,19 +140,30 @@ public class RedisLockClient {
    * @return
    */
   public <T> String get(String key) {
-    return redisTemplate.opsForValue().get(key);
+    return execute((RedisConnection connection) -> SharedlockUtils.bytesToString(connection.get(SharedlockUtils.stringToBytes(key))));
+  }
+
+  /**
+   * 获取 key 的剩余过期时长
+   * https://redis.io/commands/pttl
+   * @param key 锁 key
+   * @return 剩余过期时长，单位毫秒，key 不存在返回 -2，没有过期时间返回 -1
+   */
+  public long pttl(String key) {
+    Long ttl = execute((RedisConnection connection) -> connection.pTtl(SharedlockUtils.stringToBytes(key)));
+    return ttl == null ? -1L : ttl;
   }
 
   /**
    * 调用 set nx 接口
    * https://redis.io/commands/set
    * @param key 锁 key
-   * @param value 锁的值，一般是UUID
+   * @param value 锁的值，一般是持有者 token
    * @param lockSeconds 锁定时长，单位秒
    * @return 设置结果
    */
   public <T> boolean setNX(String key, String value, int lockSeconds) {
-    return redisTemplate.execute((RedisConnection connection) -> {
+    return execute((RedisConnection connection) -> {
       try {
        if (connection.set(SharedlockUtils.stringToBytes(key), SharedlockUtils.stringToBytes(value), Expiration.seconds(lockSeconds), SetOption.SET_IF_ABSENT)) {
          log.debug("spring data redis -> {} 获取锁{}数据成功", key, value);
@@ -59,26 +177,452 @@ public class RedisLockClient {
   }
 
   /**
-   * 通过Lua脚本释放锁 https://redis.io/commands/eval
+   * 通过Lua脚本获取锁并生成 fencing token https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param key 锁 key
+   * @param fencingKey fencing token 计数器 key
+   * @param value 锁的值，一般是持有者 token
+   * @param lockMills 锁定时长，单位毫秒
+   * @return fencing token，获取失败返回 0，脚本返回持有者剩余持有时长时返回其相反数
+   */
+  public long acquireByLua(RedisLockScript script, String key, String fencingKey, String value, long lockMills) {
+    byte[][] keysAndArgs = new byte[][] {SharedlockUtils.stringToBytes(key), SharedlockUtils.stringToBytes(fencingKey), SharedlockUtils.stringToBytes(value), SharedlockUtils.stringToBytes(String.valueOf(lockMills))};
+    return acquireByLua(script, 2, keysAndArgs);
+  }
+
+  /**
+   * 使用已编码的参数通过Lua脚本获取锁 https://redis.io/commands/evalsha
+   * 重试获取时复用同一份参数，不再重复编码
+   *
+   * @param script lua脚本
+   * @param numKeys key 数量，第一个 key 是锁 key，第一个参数是锁的值
+   * @param keysAndArgs 已编码的 key 和参数
+   * @return fencing token，获取失败返回 0，脚本返回持有者剩余持有时长时返回其相反数
+   */
+  public long acquireByLua(RedisLockScript script, int numKeys, byte[]... keysAndArgs) {
+    return execute((RedisConnection connection) -> {
+      try {
+        Long token = scriptRegistry.eval(connection, script, ReturnType.INTEGER, numKeys, keysAndArgs);
+        if (token != null && token > 0) {
+          if (log.isDebugEnabled()) {
+            log.debug("spring data redis -> {} 获取锁{}数据成功，fencing token {}", SharedlockUtils.bytesToString(keysAndArgs[0]), SharedlockUtils.bytesToString(keysAndArgs[numKeys]), token);
+          }
+          return token;
+        }
+        // 持有者剩余持有时长
+        if (token != null && token < 0) {
+          return token;
+        }
+      } catch (Exception e) {
+        log.error("spring data redis -> {} 锁获取超时", SharedlockUtils.bytesToString(keysAndArgs[0]), e);
+      }
+      return 0L;
+    });
+  }
+
+  /**
+   * 使用已编码的参数通过Lua脚本获取锁，获取成功后在同一个连接上等待副本确认 https://redis.io/commands/wait
+   * <p>
+   *   WAIT 不能在脚本中执行，只能紧跟在脚本之后，确认的是该连接之前的所有写入。确认数量不足时执行回滚脚本释放刚获取的锁，
+   *   返回 0 视为获取失败。
+   * </p>
+   * <p>
+   *   WAIT 会阻塞连接直到确认或超时，lettuce 共享原生连接（shareNativeConnection=true）时所有命令复用同一个连接，
+   *   会阻塞其他命令，因此不支持，需要配置关闭共享原生连接或者使用连接池的独立连接工厂
+   * </p>
+   *
+   * @param script lua脚本
+   * @param numKeys key 数量，第一个 key 是锁 key，第一个参数是锁的值
+   * @param keysAndArgs 已编码的 key 和参数
+   * @param replicas 要求确认的副本数量
+   * @param timeoutMills 等待超时时长，单位毫秒
+   * @param rollback 回滚脚本
+   * @param rollbackKeysAndArgs 回滚脚本已编码的 key 和参数，key 数量与获取脚本相同
+   * @return fencing token，获取失败或者确认数量不足返回 0，脚本返回持有者剩余持有时长时返回其相反数
+   * @throws UnsupportedOperationException 连接工厂共享原生连接时
+   */
+  public long acquireByLua(RedisLockScript script, int numKeys, byte[][] keysAndArgs, int replicas, long timeoutMills,
+      RedisLockScript rollback, byte[]... rollbackKeysAndArgs) {
+    if (isSharedNativeConnection()) {
+      throw new UnsupportedOperationException("副本确认需要独立的连接，lettuce 连接工厂共享原生连接时不支持，请关闭 shareNativeConnection 或者使用独立的连接工厂");
+    }
+    return execute((RedisConnection connection) -> {
+      try {
+        Long token = scriptRegistry.eval(connection, script, ReturnType.INTEGER, numKeys, keysAndArgs);
+        if (token == null || token <= 0) {
+          return token == null ? 0L : token;
+        }
+        long start = System.nanoTime();
+        long acknowledged = waitReplicas(connection, keysAndArgs[0], replicas, timeoutMills);
+        replicaAckStats.record(System.nanoTime() - start, acknowledged >= replicas);
+        if (acknowledged >= replicas) {
+          if (log.isDebugEnabled()) {
+            log.debug("spring data redis -> {} 获取锁{}数据成功，{} 个副本确认，fencing token {}", SharedlockUtils.bytesToString(keysAndArgs[0]), SharedlockUtils.bytesToString(keysAndArgs[numKeys]), acknowledged, token);
+          }
+          return token;
+        }
+        log.warn("spring data redis -> {} 获取锁成功但只有 {} 个副本确认，要求 {} 个，回滚", SharedlockUtils.bytesToString(keysAndArgs[0]), acknowledged, replicas);
+        scriptRegistry.eval(connection, rollback, ReturnType.INTEGER, numKeys, rollbackKeysAndArgs);
+      } catch (Exception e) {
+        log.error("spring data redis -> {} 锁获取超时", SharedlockUtils.bytesToString(keysAndArgs[0]), e);
+      }
+      return 0L;
+    });
+  }
+
+  /**
+   * 连接工厂是否把所有命令复用到同一个原生连接上，此时阻塞命令会阻塞其他命令
+   * @return 结果
+   */
+  public boolean isSharedNativeConnection() {
+    return connectionFactory instanceof LettuceConnectionFactory && ((LettuceConnectionFactory) connectionFactory).getShareNativeConnection();
+  }
+
+  /**
+   * 等待副本确认 https://redis.io/commands/wait
+   * @param connection 连接
+   * @param key 锁 key，cluster 模式下用于路由到 key 所在的节点
+   * @param replicas 副本数量
+   * @param timeoutMills 超时时长，单位毫秒
+   * @return 确认的副本数量
+   */
+  private static long waitReplicas(RedisConnection connection, byte[] key, int replicas, long timeoutMills) {
+    byte[] numReplicas = SharedlockUtils.stringToBytes(String.valueOf(replicas));
+    byte[] timeout = SharedlockUtils.stringToBytes(String.valueOf(timeoutMills));
+    Object result = connection instanceof RedisClusterConnection
+        ? ((RedisClusterConnection) connection).execute("WAIT", key, Arrays.asList(numReplicas, timeout))
+        : connection.execute("WAIT", numReplicas, timeout);
+    if (result instanceof Number) {
+      return ((Number) result).longValue();
+    }
+    return result instanceof byte[] ? Long.parseLong(SharedlockUtils.bytesToString((byte[]) result)) : 0L;
+  }
+
+  /**
+   * 通过Lua脚本获取锁或许可并生成 fencing token https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param keys key 列表，包括 fencing token 计数器 key
+   * @param args 脚本参数
+   * @return fencing token，获取失败返回 0
+   */
+  public long acquireByLua(RedisLockScript script, List<String> keys, List<String> args) {
+    Long token = evalForLong(script, keys, args, "获取锁");
+    return token == null ? 0L : token;
+  }
+
+  /**
+   * 通过Lua脚本统计数量 https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param keys key 列表
+   * @param args 脚本参数
+   * @return 数量，请求异常时返回 null
+   */
+  public Long countByLua(RedisLockScript script, List<String> keys, List<String> args) {
+    return evalForLong(script, keys, args, "统计");
+  }
+
+  /**
+   * 通过Lua脚本释放锁 https://redis.io/commands/evalsha
    *
-   * @param luaScript lua脚本
-   * @param key 锁 key * @param value 锁的值，一般是UUID
+   * @param script lua脚本
+   * @param key 锁 key
+   * @param args 脚本参数，第一个是锁的值，一般是持有者 token，第二个是可选的释放通知频道
    * @return
    */
-  public <T> boolean releaseByLua(String luaScript, String key, String value) {
-    return redisTemplate.execute((RedisConnection connection) -> {
+  public <T> boolean releaseByLua(RedisLockScript script, String key, String... args) {
+    byte[][] keysAndArgs = new byte[args.length + 1][];
+    keysAndArgs[0] = SharedlockUtils.stringToBytes(key);
+    for (int i = 0; i < args.length; i ++) {
+      keysAndArgs[i + 1] = SharedlockUtils.stringToBytes(args[i]);
+    }
+    return releaseByLua(script, 1, keysAndArgs);
+  }
+
+  /**
+   * 使用已编码的参数通过Lua脚本释放锁 https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param numKeys key 数量，第一个 key 是锁 key
+   * @param keysAndArgs 已编码的 key 和参数
+   * @return 是否释放成功
+   */
+  public boolean releaseByLua(RedisLockScript script, int numKeys, byte[]... keysAndArgs) {
+    return execute((RedisConnection connection) -> {
       try {
-        if (connection.eval(SharedlockUtils.stringToBytes(luaScript), ReturnType.BOOLEAN, 1, SharedlockUtils.stringToBytes(key), SharedlockUtils.stringToBytes(value))) {
-          log.debug("spring data redis -> {} 释放锁成功", key);
+        if (Boolean.TRUE.equals(scriptRegistry.<Boolean>eval(connection, script, ReturnType.BOOLEAN, numKeys, keysAndArgs))) {
+          if (log.isDebugEnabled()) {
+            log.debug("spring data redis -> {} 释放锁成功", SharedlockUtils.bytesToString(keysAndArgs[0]));
+          }
           return true;
         }
       } catch (Exception e) {
-        log.error("spring data redis -> {} 释放锁超时", key, e);
+        log.error("spring data redis -> {} 释放锁超时", SharedlockUtils.bytesToString(keysAndArgs[0]), e);
       }
       return false;
     });
   }
 
+  /**
+   * 通过Lua脚本释放锁，脚本涉及多个 key https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param keys key 列表，第一个是锁 key
+   * @param args 脚本参数，第一个是锁的值，一般是持有者 token
+   * @return 是否释放成功
+   */
+  public boolean releaseByLua(RedisLockScript script, List<String> keys, List<String> args) {
+    Long result = evalForLong(script, keys, args, "释放锁");
+    if (result != null && result == 1L) {
+      log.debug("spring data redis -> {} 释放锁成功", keys.get(0));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 通过Lua脚本批量续期，一次请求处理所有 key https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param keys 锁 key 列表
+   * @param args 脚本参数
+   * @return 每个 key 的续期结果，1 成功 0 失败，请求异常时返回 null
+   */
+  public List<Long> renewByLua(RedisLockScript script, List<String> keys, List<String> args) {
+    return evalForList(script, keys, args, "续期锁");
+  }
+
+  /**
+   * 通过Lua脚本一次获取多个锁 https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param keys 锁 key 列表，包括 fencing token 计数器 key
+   * @param args 脚本参数
+   * @return 全部获取成功时返回每个锁的 fencing token，失败返回空列表，请求异常时返回 null
+   */
+  public List<Long> acquireAllByLua(RedisLockScript script, List<String> keys, List<String> args) {
+    return evalForList(script, keys, args, "批量获取锁");
+  }
+
+  /**
+   * 通过Lua脚本一次释放多个锁 https://redis.io/commands/evalsha
+   *
+   * @param script lua脚本
+   * @param keys 锁 key 列表
+   * @param args 脚本参数
+   * @return 每个 key 的释放结果，1 成功 0 失败，请求异常时返回 null
+   */
+  public List<Long> releaseAllByLua(RedisLockScript script, List<String> keys, List<String> args) {
+    return evalForList(script, keys, args, "批量释放锁");
+  }
+
+  /**
+   * 通过 pipeline 批量续期，每个脚本处理同一个 slot 的一批 key https://redis.io/topics/pipelining
+   *
+   * @param script lua脚本
+   * @param keys 每个脚本的锁 key 列表
+   * @param args 每个脚本的参数
+   * @return 每个脚本的续期结果，顺序与 keys 一致，请求异常的脚本结果为 null
+   * @see #pipelineForList(RedisLockScript, List, List, String)
+   */
+  public List<List<Long>> renewInPipeline(RedisLockScript script, List<List<String>> keys, List<List<String>> args) {
+    return pipelineForList(script, keys, args, "续期锁");
+  }
+
+  /**
+   * 通过 pipeline 批量获取锁，每个脚本获取同一个 slot 的多个锁 https://redis.io/topics/pipelining
+   *
+   * @param script lua脚本
+   * @param keys 每个脚本的 key 列表，包括 fencing token 计数器 key
+   * @param args 每个脚本的参数
+   * @return 每个脚本的获取结果，全部获取成功时是每个锁的 fencing token，失败是空列表，请求异常的脚本结果为 null
+   * @see #pipelineForList(RedisLockScript, List, List, String)
+   */
+  public List<List<Long>> acquireAllInPipeline(RedisLockScript script, List<List<String>> keys, List<List<String>> args) {
+    return pipelineForList(script, keys, args, "批量获取锁");
+  }
+
+  /**
+   * 通过 pipeline 批量释放锁，每个脚本释放同一个 slot 的多个锁 https://redis.io/topics/pipelining
+   *
+   * @param script lua脚本
+   * @param keys 每个脚本的锁 key 列表
+   * @param args 每个脚本的参数
+   * @return 每个脚本中每个 key 的释放结果，1 成功 0 失败，请求异常的脚本结果为 null
+   * @see #pipelineForList(RedisLockScript, List, List, String)
+   */
+  public List<List<Long>> releaseAllInPipeline(RedisLockScript script, List<List<String>> keys, List<List<String>> args) {
+    return pipelineForList(script, keys, args, "批量释放锁");
+  }
+
+  /**
+   * 通过Lua脚本执行业务操作 https://redis.io/commands/evalsha
+   * 与其他方法不同，脚本错误不会被吞掉，直接抛出给调用者
+   *
+   * @param script lua脚本
+   * @param numKeys key 数量
+   * @param keysAndArgs 已编码的 key 和参数
+   * @return 脚本返回的表
+   */
+  public List<Object> executeByLua(RedisLockScript script, int numKeys, byte[]... keysAndArgs) {
+    return execute((RedisConnection connection) -> scriptRegistry.eval(connection, script, ReturnType.MULTI, numKeys, keysAndArgs));
+  }
+
+  /**
+   * 执行返回整数的脚本
+   * @param script lua脚本
+   * @param keys key 列表
+   * @param args 脚本参数
+   * @param action 操作名称，用于日志
+   * @return 执行结果，请求异常时返回 null
+   */
+  private Long evalForLong(RedisLockScript script, List<String> keys, List<String> args, String action) {
+    byte[][] keysAndArgs = toKeysAndArgs(keys, args);
+    return execute((RedisConnection connection) -> {
+      try {
+        return scriptRegistry.<Long>eval(connection, script, ReturnType.INTEGER, keys.size(), keysAndArgs);
+      } catch (Exception e) {
+        log.error("spring data redis -> {} {}失败", keys, action, e);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * 执行返回整数列表的脚本
+   * @param script lua脚本
+   * @param keys key 列表
+   * @param args 脚本参数
+   * @param action 操作名称，用于日志
+   * @return 执行结果，请求异常时返回 null
+   */
+  private List<Long> evalForList(RedisLockScript script, List<String> keys, List<String> args, String action) {
+    byte[][] keysAndArgs = toKeysAndArgs(keys, args);
+    return execute((RedisConnection connection) -> evalForList(connection, script, keys, keysAndArgs, action));
+  }
+
+  /**
+   * 通过 pipeline 一次发送多个返回整数列表的脚本
+   * <p>
+   *   cluster 模式下 lettuce 把每个脚本路由到 key 所在 slot 的节点，发往同一个节点的脚本在该节点的连接上连续发送，
+   *   不等待前一个脚本的结果，每个节点一次往返，各节点并行。连接不支持 pipeline 时（例如 jedis cluster）在同一个连接上依次执行。
+   *   单个脚本失败不影响其他脚本，脚本缓存丢失的脚本通过 {@link RedisScriptRegistry} 重新执行一次
+   * </p>
+   * @param script lua脚本
+   * @param keys 每个脚本的 key 列表
+   * @param args 每个脚本的参数
+   * @param action 操作名称，用于日志
+   * @return 每个脚本的执行结果，顺序与 keys 一致，请求异常的脚本结果为 null
+   */
+  private List<List<Long>> pipelineForList(RedisLockScript script, List<List<String>> keys, List<List<String>> args, String action) {
+    List<byte[][]> keysAndArgs = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i ++) {
+      keysAndArgs.add(toKeysAndArgs(keys.get(i), args.get(i)));
+    }
+    return execute((RedisConnection connection) -> {
+      List<Object> results = pipeline(connection, script, keys, keysAndArgs);
+      List<List<Long>> values = new ArrayList<>(keys.size());
+      for (int i = 0; i < keys.size(); i ++) {
+        Object result = results == null || i >= results.size() ? null : results.get(i);
+        if (result instanceof List) {
+          values.add(toLongs((List<?>) result));
+        } else if (results == null || (result instanceof Exception && RedisScriptRegistry.isNoScript((Exception) result))) {
+          // 不支持 pipeline 或者脚本缓存丢失，单独执行
+          values.add(evalForList(connection, script, keys.get(i), keysAndArgs.get(i), action));
+        } else {
+          log.error("spring data redis -> {} {}失败", keys.get(i), action, result instanceof Exception ? (Exception) result : null);
+          values.add(null);
+        }
+      }
+      return values;
+    });
+  }
+
+  /**
+   * 在 pipeline 中执行脚本
+   * @param connection 连接
+   * @param script lua脚本
+   * @param keys 每个脚本的 key 列表
+   * @param keysAndArgs 每个脚本已编码的 key 和参数
+   * @return 每个脚本的执行结果或者异常，连接不支持 pipeline 时返回 null
+   */
+  private static List<Object> pipeline(RedisConnection connection, RedisLockScript script, List<List<String>> keys, List<byte[][]> keysAndArgs) {
+    try {
+      connection.openPipeline();
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+    try {
+      for (int i = 0; i < keys.size(); i ++) {
+        connection.evalSha(script.getSha(), ReturnType.MULTI, keys.get(i).size(), keysAndArgs.get(i));
+      }
+    } catch (RuntimeException e) {
+      try {
+        connection.closePipeline();
+      } catch (RuntimeException ignored) {
+        // 已经失败，忽略关闭时的异常
+      }
+      return Collections.nCopies(keys.size(), e);
+    }
+    try {
+      return connection.closePipeline();
+    } catch (RedisPipelineException e) {
+      // 部分脚本失败，结果中对应位置是异常
+      return e.getPipelineResult();
+    }
+  }
+
+  /**
+   * 在指定连接上执行返回整数列表的脚本
+   * @param connection 连接
+   * @param script lua脚本
+   * @param keys key 列表
+   * @param keysAndArgs 已编码的 key 和参数
+   * @param action 操作名称，用于日志
+   * @return 执行结果，请求异常时返回 null
+   */
+  private List<Long> evalForList(RedisConnection connection, RedisLockScript script, List<String> keys, byte[][] keysAndArgs, String action) {
+    try {
+      return toLongs(scriptRegistry.eval(connection, script, ReturnType.MULTI, keys.size(), keysAndArgs));
+    } catch (Exception e) {
+      log.error("spring data redis -> {} {}失败", keys, action, e);
+    }
+    return null;
+  }
+
+  /**
+   * 转换脚本返回的整数列表
+   * @param result 脚本返回的表
+   * @return 整数列表，不是整数的元素视为 0
+   */
+  private static List<Long> toLongs(List<?> result) {
+    List<Long> values = new ArrayList<>(result.size());
+    for (Object item : result) {
+      values.add(item instanceof Long ? (Long) item : 0L);
+    }
+    return values;
+  }
+
+  /**
+   * 合并脚本的 key 和参数
+   * @param keys key 列表
+   * @param args 脚本参数
+   * @return 脚本的 keysAndArgs
+   */
+  static byte[][] toKeysAndArgs(List<String> keys, List<String> args) {
+    byte[][] keysAndArgs = new byte[keys.size() + args.size()][];
+    int index = 0;
+    for (String key : keys) {
+      keysAndArgs[index ++] = SharedlockUtils.stringToBytes(key);
+    }
+    for (String arg : args) {
+      keysAndArgs[index ++] = SharedlockUtils.stringToBytes(arg);
+    }
+    return keysAndArgs;
+  }
+
   /**
    * 删除 key
    * https://redis.io/commands/del
@@ -86,7 +630,10 @@ public class RedisLockClient {
    * @return
    */
   public <T> boolean delete(String key) {
-    return redisTemplate.delete(key);
+    return execute((RedisConnection connection) -> {
+      Long count = connection.del(SharedlockUtils.stringToBytes(key));
+      return count != null && count > 0;
+    });
   }
 
 }
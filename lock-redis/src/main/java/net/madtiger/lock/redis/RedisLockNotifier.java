@@ -0,0 +1,287 @@
+package net.madtiger.lock.redis;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import net.madtiger.lock.SharedLockTimer;
+import net.madtiger.lock.SharedlockUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * redis 锁释放通知
+ * <p>
+ *   整个 JVM 共用一个订阅连接，释放锁的 lua 脚本会向 {@link #CHANNEL_PREFIX} + key 频道发布消息，等待者收到后立即重新获取锁。
+ *   登记等待者之后再查询一次持有者剩余持有时长，key 已经不存在时立即返回，获取失败到登记之间发布的通知不会丢失；
+ *   持有者宕机导致 key 过期时不会发送通知，最多等到持有者剩余持有时长结束。
+ *   不订阅 key 过期事件，过期事件会发送给每个实例，并且 cluster 模式下只在 key 所在的节点发布
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class RedisLockNotifier implements MessageListener, DisposableBean {
+
+  /**
+   * 订阅容器
+   */
+  private final RedisMessageListenerContainer container;
+
+  /**
+   * 当前等待中的 key
+   */
+  private final ConcurrentHashMap<String, Waiter> waiters = new ConcurrentHashMap<>(64);
+
+  /**
+   * 单次最长等待时长，单位毫秒，用于防止丢失通知后长时间等待
+   */
+  private final long maxAwaitMills;
+
+  /**
+   * 创建一个通知服务
+   * @param connectionFactory redis 连接工厂
+   */
+  public RedisLockNotifier(RedisConnectionFactory connectionFactory) {
+    this(connectionFactory, DEFAULT_MAX_AWAIT_MILLS);
+  }
+
+  /**
+   * 创建一个通知服务
+   * @param connectionFactory redis 连接工厂
+   * @param maxAwaitMills 单次最长等待时长，单位毫秒
+   */
+  public RedisLockNotifier(RedisConnectionFactory connectionFactory, long maxAwaitMills) {
+    Objects.requireNonNull(connectionFactory);
+    this.maxAwaitMills = maxAwaitMills;
+    container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(this, new PatternTopic(CHANNEL_PREFIX + "*"));
+    container.afterPropertiesSet();
+    container.start();
+  }
+
+  /**
+   * 获取 key 对应的释放通知频道
+   * @param key 锁 key
+   * @return 频道名称
+   */
+  public String channel(String key) {
+    return CHANNEL_PREFIX + key;
+  }
+
+  /**
+   * 获取已编码 key 对应的释放通知频道，复用已编码的频道前缀
+   * @param key 已编码的锁 key
+   * @return 已编码的频道名称
+   */
+  public byte[] channel(byte[] key) {
+    byte[] channel = new byte[CHANNEL_PREFIX_BYTES.length + key.length];
+    System.arraycopy(CHANNEL_PREFIX_BYTES, 0, channel, 0, CHANNEL_PREFIX_BYTES.length);
+    System.arraycopy(key, 0, channel, CHANNEL_PREFIX_BYTES.length, key.length);
+    return channel;
+  }
+
+  /**
+   * 获取公平锁排队者的等待 key，释放时只唤醒被发布的队首
+   * @param key 锁 key
+   * @param ticket 排队的 ticket
+   * @return 等待 key
+   */
+  public String ticketKey(String key, String ticket) {
+    return key + TICKET_SEPARATOR + ticket;
+  }
+
+  /**
+   * 等待 key 被释放
+   * @param key 锁 key
+   * @param waitMills 最长等待时长，单位毫秒
+   * @throws InterruptedException 等待被中断
+   */
+  public void await(String key, long waitMills) throws InterruptedException {
+    await(key, waitMills, null);
+  }
+
+  /**
+   * 等待 key 被释放，登记等待者之后查询持有者剩余持有时长
+   * @param key 等待 key
+   * @param waitMills 最长等待时长，单位毫秒
+   * @param holderTtl 查询持有者剩余持有时长，单位毫秒，key 不存在时返回 {@link #RELEASED_TTL}，为空时不查询
+   * @throws InterruptedException 等待被中断
+   */
+  public void await(String key, long waitMills, LongSupplier holderTtl) throws InterruptedException {
+    long mills = Math.min(waitMills, maxAwaitMills);
+    if (mills <= 0) {
+      return;
+    }
+    Waiter waiter = enter(key);
+    try {
+      mills = holderTtl == null ? mills : bound(mills, holderTtl.getAsLong());
+      if (mills > 0) {
+        waiter.signal.get(mills, TimeUnit.MILLISECONDS);
+      }
+    } catch (ExecutionException | TimeoutException e) {
+      // 超时后由调用方重新尝试获取
+    } finally {
+      leave(key, waiter);
+    }
+  }
+
+  /**
+   * 异步等待 key 被释放，不占用调用线程
+   * @param key 锁 key
+   * @param waitMills 最长等待时长，单位毫秒
+   * @return 被唤醒或者超时后完成
+   */
+  public CompletableFuture<Void> awaitAsync(String key, long waitMills) {
+    return awaitAsync(key, waitMills, null);
+  }
+
+  /**
+   * 异步等待 key 被释放，登记等待者之后查询持有者剩余持有时长，不占用调用线程
+   * @param key 等待 key
+   * @param waitMills 最长等待时长，单位毫秒
+   * @param holderTtl 异步查询持有者剩余持有时长，单位毫秒，key 不存在时返回 {@link #RELEASED_TTL}，为空时不查询
+   * @return 被唤醒或者超时后完成
+   */
+  public CompletableFuture<Void> awaitAsync(String key, long waitMills, Supplier<CompletableFuture<Long>> holderTtl) {
+    long mills = Math.min(waitMills, maxAwaitMills);
+    if (mills <= 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Waiter waiter = enter(key);
+    CompletableFuture<Long> ttl = holderTtl == null ? CompletableFuture.completedFuture(NO_TTL) : holderTtl.get();
+    return ttl.exceptionally(ex -> NO_TTL)
+        .thenCompose(value -> {
+          long bounded = bound(mills, value == null ? NO_TTL : value);
+          return bounded <= 0 ? CompletableFuture.completedFuture(null) : CompletableFuture.anyOf(waiter.signal, SharedLockTimer.delay(bounded));
+        })
+        .handle((v, ex) -> {
+          leave(key, waiter);
+          return null;
+        });
+  }
+
+  /**
+   * 等待时长不超过持有者剩余持有时长
+   * @param mills 等待时长，单位毫秒
+   * @param ttl 持有者剩余持有时长，单位毫秒
+   * @return 等待时长，key 已经不存在时返回 0
+   */
+  private static long bound(long mills, long ttl) {
+    if (ttl == RELEASED_TTL) {
+      return 0;
+    }
+    return ttl > 0 ? Math.min(mills, ttl) : mills;
+  }
+
+  /**
+   * 登记一个等待者
+   * @param key 锁 key
+   * @return 等待者
+   */
+  private Waiter enter(String key) {
+    return waiters.compute(key, (k, v) -> {
+      v = v == null ? new Waiter() : v;
+      v.count ++;
+      return v;
+    });
+  }
+
+  /**
+   * 等待者退出，最后一个等待者退出时移除
+   * @param key 锁 key
+   * @param waiter 等待者
+   */
+  private void leave(String key, Waiter waiter) {
+    waiters.computeIfPresent(key, (k, v) -> v == waiter && --v.count <= 0 ? null : v);
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    if (waiters.isEmpty()) {
+      return;
+    }
+    String channel = SharedlockUtils.bytesToString(message.getChannel());
+    String body = SharedlockUtils.bytesToString(message.getBody());
+    // 释放通知的频道带有 key，公平锁的消息体是队首的 ticket
+    String key = channel.substring(CHANNEL_PREFIX.length());
+    signal(key);
+    if (!key.equals(body)) {
+      signal(ticketKey(key, body));
+    }
+  }
+
+  /**
+   * 唤醒 key 的所有等待者
+   * @param key 锁 key
+   */
+  void signal(String key) {
+    Waiter waiter = waiters.remove(key);
+    if (waiter != null) {
+      log.debug("spring data redis -> {} 锁已释放，唤醒等待者", key);
+      waiter.signal.complete(null);
+    }
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    container.destroy();
+  }
+
+  /**
+   * 同一个 key 的等待者
+   */
+  private static final class Waiter {
+
+    /**
+     * 唤醒信号
+     */
+    final CompletableFuture<Void> signal = new CompletableFuture<>();
+
+    /**
+     * 等待者数量，只在 map 的 compute 中修改
+     */
+    int count;
+  }
+
+  /**
+   * 锁释放通知频道前缀
+   */
+  public static final String CHANNEL_PREFIX = "__shared_lock_release__:";
+
+  /**
+   * 已编码的锁释放通知频道前缀
+   */
+  private static final byte[] CHANNEL_PREFIX_BYTES = SharedlockUtils.stringToBytes(CHANNEL_PREFIX);
+
+  /**
+   * 排队者等待 key 的分隔符
+   */
+  private static final String TICKET_SEPARATOR = "#";
+
+  /**
+   * 未知的剩余持有时长，查询失败或者 key 没有过期时间
+   */
+  private static final long NO_TTL = -1;
+
+  /**
+   * key 不存在时的剩余持有时长，与 PTTL 的返回值一致
+   */
+  public static final long RELEASED_TTL = -2;
+
+  /**
+   * 默认单次最长等待时长
+   */
+  public static final long DEFAULT_MAX_AWAIT_MILLS = 1000;
+}
@@ -1,12 +1,27 @@
 package net.madtiger.lock.redis;
 
+import static net.madtiger.lock.SharedLockConstants.UNKNOWN_HOLDER_TTL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.ReadWriteMode;
+import net.madtiger.lock.SharedLockConstants;
+import net.madtiger.lock.SharedLockEnvironment;
+import net.madtiger.lock.SharedLockOwnerToken;
+import net.madtiger.lock.SharedLockTimer;
+import net.madtiger.lock.SharedlockUtils;
 import net.madtiger.lock.exception.UnLockFailSharedLockException;
-import net.madtiger.lock.provider.ISharedLockProvider;
+import net.madtiger.lock.provider.IProviderConfigurer;
+import net.madtiger.lock.provider.ISharedReadWriteLockProvider;
+import net.madtiger.lock.provider.ISharedSemaphoreProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
 
@@ -16,58 +31,420 @@ import org.springframework.util.StringUtils;
  * @version 1.0
  */
 @Slf4j
-public class RedisLockProvider implements ISharedLockProvider {
+public class RedisLockProvider implements ISharedReadWriteLockProvider, ISharedSemaphoreProvider {
+
+  /**
+   * 加锁的lua脚本，成功后递增 fencing token 计数器并返回，失败时返回持有者剩余持有时长（毫秒）的相反数，没有过期时间时返回 0。
+   * 计数器 key 与锁 key 相同时表示不生成 fencing token，成功时返回 1，其他获取脚本相同
+   */
+  static final RedisLockScript ACQUIRE_SCRIPT;
 
   /**
    * 解锁的lua脚本
    */
-  private static final String RELEASE_LUA;
+  static final RedisLockScript RELEASE_SCRIPT;
+
+  /**
+   * 批量加锁的lua脚本，KEYS 前一半是锁，后一半是对应的 fencing token 计数器，
+   * ARGV 依次是 持有者、每个锁的锁定时长（毫秒），任意一个 key 已被持有则全部失败
+   */
+  private static final RedisLockScript ACQUIRE_ALL_SCRIPT;
+
+  /**
+   * 批量解锁的lua脚本，ARGV 依次是 持有者、可选的释放通知频道前缀
+   */
+  private static final RedisLockScript RELEASE_ALL_SCRIPT;
+
+  /**
+   * 读锁的lua脚本，读写锁是一个 hash，mode 字段是当前模式，其他字段是 持有者 -> 到期时间（redis 服务器时间，毫秒），
+   * KEYS 依次是 锁、fencing token 计数器，ARGV 依次是 持有者、锁定时长（毫秒）
+   */
+  private static final RedisLockScript READ_SCRIPT;
+
+  /**
+   * 写锁的lua脚本，参数同读锁，清理过期的读锁后没有其他持有者时才能获取
+   */
+  private static final RedisLockScript WRITE_SCRIPT;
+
+  /**
+   * 释放读锁或写锁的lua脚本，ARGV 依次是 持有者、可选的释放通知频道，最后一个持有者释放时删除锁并发布通知
+   */
+  private static final RedisLockScript READ_WRITE_RELEASE_SCRIPT;
+
+  /**
+   * 续期读锁或写锁的lua脚本，ARGV 依次是 持有者、续期时长（毫秒）
+   */
+  private static final RedisLockScript READ_WRITE_RENEW_SCRIPT;
+
+  /**
+   * 获取许可的lua脚本，信号量是一个 zset，成员是 持有者#序号，分数是到期时间（redis 服务器时间，毫秒），获取前先清理过期的许可，
+   * KEYS 依次是 信号量、fencing token 计数器，ARGV 依次是 持有者、锁定时长（毫秒）、本次获取的许可数量、许可总数
+   */
+  private static final RedisLockScript SEMAPHORE_ACQUIRE_SCRIPT;
+
+  /**
+   * 释放许可的lua脚本，ARGV 依次是 持有者、本次获取的许可数量、可选的释放通知频道
+   */
+  private static final RedisLockScript SEMAPHORE_RELEASE_SCRIPT;
+
+  /**
+   * 续期许可的lua脚本，ARGV 依次是 持有者、续期时长（毫秒）、本次获取的许可数量
+   */
+  private static final RedisLockScript SEMAPHORE_RENEW_SCRIPT;
+
+  /**
+   * 统计剩余许可的lua脚本，ARGV 是许可总数
+   */
+  private static final RedisLockScript SEMAPHORE_AVAILABLE_SCRIPT;
+
+  /**
+   * 公平模式加锁的lua脚本，等待队列是一个 zset，成员是 ticket（持有者），分数是入队时间，另一个 zset 记录每个 ticket 的心跳到期时间，
+   * 入队或刷新心跳后只有队首可以加锁，KEYS 依次是 锁、fencing token 计数器、等待队列、心跳，ARGV 依次是 持有者、锁定时长（毫秒）、心跳时长（毫秒）
+   */
+  static final RedisLockScript FAIR_ACQUIRE_SCRIPT;
+
+  /**
+   * 公平模式解锁的lua脚本，KEYS 同加锁，ARGV 依次是 持有者、可选的释放通知频道，通知的消息体是新的队首 ticket
+   */
+  static final RedisLockScript FAIR_RELEASE_SCRIPT;
+
+  /**
+   * 放弃排队的lua脚本，KEYS 同加锁，ARGV 依次是 持有者、可选的释放通知频道，队首放弃且锁空闲时通知下一个 ticket
+   */
+  static final RedisLockScript FAIR_CANCEL_SCRIPT;
+
+  /**
+   * 可重入加锁的lua脚本，锁是一个 hash，持有者字段是重入次数，{@link #REENTRANT_TOKEN_FIELD} 字段是本次持有的 fencing token，
+   * KEYS 依次是 锁、fencing token 计数器，ARGV 依次是 持有者、锁定时长（毫秒），返回值同 {@link #ACQUIRE_SCRIPT}
+   */
+  static final RedisLockScript REENTRANT_ACQUIRE_SCRIPT;
+
+  /**
+   * 可重入解锁的lua脚本，ARGV 依次是 持有者、可选的释放通知频道，重入次数减到 0 时删除锁并发布通知，
+   * 返回剩余的重入次数，不是持有者时返回 -1
+   */
+  static final RedisLockScript REENTRANT_RELEASE_SCRIPT;
 
   static {
     StringBuilder sb = new StringBuilder();
+    sb.append("if redis.call(\"set\",KEYS[1],ARGV[1],\"PX\",ARGV[2],\"NX\") ");
+    sb.append("then ");
+    sb.append("    return " + RedisLockProvider.NEXT_TOKEN + " ");
+    sb.append("end ");
+    sb.append("local ttl = redis.call(\"pttl\",KEYS[1]) ");
+    sb.append("if ttl > 0 then ");
+    sb.append("    return -ttl ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    ACQUIRE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
     sb.append("if redis.call(\"get\",KEYS[1]) == ARGV[1] ");
     sb.append("then ");
-    sb.append("    return redis.call(\"del\",KEYS[1]) ");
+    sb.append("    redis.call(\"del\",KEYS[1]) ");
+    // 有等待者订阅时，发布释放通知
+    sb.append("    if ARGV[2] then ");
+    sb.append("        redis.call(\"publish\",ARGV[2],KEYS[1]) ");
+    sb.append("    end ");
+    sb.append("    return 1 ");
+    sb.append("else ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    RELEASE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
+    sb.append("local n = #KEYS / 2 ");
+    sb.append("for i = 1, n do ");
+    sb.append("    if redis.call(\"exists\",KEYS[i]) == 1 then ");
+    sb.append("        return {} ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("local tokens = {} ");
+    sb.append("for i = 1, n do ");
+    sb.append("    redis.call(\"set\",KEYS[i],ARGV[1],\"PX\",ARGV[i + 1]) ");
+    sb.append("    tokens[i] = KEYS[n + i] == KEYS[i] and 1 or redis.call(\"incr\",KEYS[n + i]) ");
+    sb.append("end ");
+    sb.append("return tokens ");
+    ACQUIRE_ALL_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
+    sb.append("local result = {} ");
+    sb.append("for i = 1, #KEYS do ");
+    sb.append("    if redis.call(\"get\",KEYS[i]) == ARGV[1] ");
+    sb.append("    then ");
+    sb.append("        redis.call(\"del\",KEYS[i]) ");
+    sb.append("        if ARGV[2] then ");
+    sb.append("            redis.call(\"publish\",ARGV[2] .. KEYS[i],KEYS[i]) ");
+    sb.append("        end ");
+    sb.append("        result[i] = 1 ");
+    sb.append("    else ");
+    sb.append("        result[i] = 0 ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("return result ");
+    RELEASE_ALL_SCRIPT = new RedisLockScript(sb.toString());
+    // 使用服务器时间的脚本公共部分
+    StringBuilder clock = new StringBuilder();
+    clock.append("redis.replicate_commands() ");
+    clock.append("local t = redis.call(\"time\") ");
+    clock.append("local now = t[1] * 1000 + math.floor(t[2] / 1000) ");
+    // 读写锁脚本公共部分：清理过期的持有者并返回最晚的到期时间
+    StringBuilder prefix = new StringBuilder(clock);
+    prefix.append("local function reap(key) ");
+    prefix.append("    local deadline = 0 ");
+    prefix.append("    local fields = redis.call(\"hgetall\",key) ");
+    prefix.append("    for i = 1, #fields, 2 do ");
+    prefix.append("        if fields[i] ~= \"mode\" then ");
+    prefix.append("            local d = tonumber(fields[i + 1]) ");
+    prefix.append("            if d <= now then ");
+    prefix.append("                redis.call(\"hdel\",key,fields[i]) ");
+    prefix.append("            elseif d > deadline then ");
+    prefix.append("                deadline = d ");
+    prefix.append("            end ");
+    prefix.append("        end ");
+    prefix.append("    end ");
+    prefix.append("    return deadline ");
+    prefix.append("end ");
+    sb = new StringBuilder(prefix);
+    sb.append("if redis.call(\"hget\",KEYS[1],\"mode\") == \"write\" then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("redis.call(\"hmset\",KEYS[1],\"mode\",\"read\",ARGV[1],now + ARGV[2]) ");
+    sb.append("redis.call(\"pexpire\",KEYS[1],reap(KEYS[1]) - now) ");
+    sb.append("return " + RedisLockProvider.NEXT_TOKEN + " ");
+    READ_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(prefix);
+    sb.append("local mode = redis.call(\"hget\",KEYS[1],\"mode\") ");
+    sb.append("if mode == \"read\" then ");
+    sb.append("    reap(KEYS[1]) ");
+    sb.append("    if redis.call(\"hlen\",KEYS[1]) > 1 then ");
+    sb.append("        return 0 ");
+    sb.append("    end ");
+    sb.append("elseif mode then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("redis.call(\"del\",KEYS[1]) ");
+    sb.append("redis.call(\"hmset\",KEYS[1],\"mode\",\"write\",ARGV[1],now + ARGV[2]) ");
+    sb.append("redis.call(\"pexpire\",KEYS[1],ARGV[2]) ");
+    sb.append("return " + RedisLockProvider.NEXT_TOKEN + " ");
+    WRITE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(prefix);
+    sb.append("if redis.call(\"hexists\",KEYS[1],ARGV[1]) == 0 then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("redis.call(\"hdel\",KEYS[1],ARGV[1]) ");
+    sb.append("local deadline = reap(KEYS[1]) ");
+    sb.append("if deadline == 0 then ");
+    sb.append("    redis.call(\"del\",KEYS[1]) ");
+    sb.append("    if ARGV[2] then ");
+    sb.append("        redis.call(\"publish\",ARGV[2],KEYS[1]) ");
+    sb.append("    end ");
     sb.append("else ");
+    sb.append("    redis.call(\"pexpire\",KEYS[1],deadline - now) ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    READ_WRITE_RELEASE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(prefix);
+    sb.append("if redis.call(\"hexists\",KEYS[1],ARGV[1]) == 0 then ");
+    sb.append("    return {0} ");
+    sb.append("end ");
+    sb.append("redis.call(\"hset\",KEYS[1],ARGV[1],now + ARGV[2]) ");
+    sb.append("redis.call(\"pexpire\",KEYS[1],reap(KEYS[1]) - now) ");
+    sb.append("return {1} ");
+    READ_WRITE_RENEW_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(clock);
+    sb.append("redis.call(\"zremrangebyscore\",KEYS[1],\"-inf\",now) ");
+    sb.append("local permits = tonumber(ARGV[3]) ");
+    sb.append("if redis.call(\"zcard\",KEYS[1]) + permits > tonumber(ARGV[4]) then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("for i = 1, permits do ");
+    sb.append("    redis.call(\"zadd\",KEYS[1],now + ARGV[2],ARGV[1] .. \"#\" .. i) ");
+    sb.append("end ");
+    sb.append("local last = redis.call(\"zrange\",KEYS[1],-1,-1,\"WITHSCORES\") ");
+    sb.append("redis.call(\"pexpire\",KEYS[1],tonumber(last[2]) - now) ");
+    sb.append("return " + RedisLockProvider.NEXT_TOKEN + " ");
+    SEMAPHORE_ACQUIRE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
+    sb.append("local removed = 0 ");
+    sb.append("for i = 1, tonumber(ARGV[2]) do ");
+    sb.append("    removed = removed + redis.call(\"zrem\",KEYS[1],ARGV[1] .. \"#\" .. i) ");
+    sb.append("end ");
+    sb.append("if removed > 0 and ARGV[3] then ");
+    sb.append("    redis.call(\"publish\",ARGV[3],KEYS[1]) ");
+    sb.append("end ");
+    sb.append("if removed == tonumber(ARGV[2]) then ");
+    sb.append("    return 1 ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    SEMAPHORE_RELEASE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(clock);
+    sb.append("for i = 1, tonumber(ARGV[3]) do ");
+    sb.append("    local member = ARGV[1] .. \"#\" .. i ");
+    sb.append("    local score = redis.call(\"zscore\",KEYS[1],member) ");
+    sb.append("    if not score or tonumber(score) <= now then ");
+    sb.append("        return {0} ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("for i = 1, tonumber(ARGV[3]) do ");
+    sb.append("    redis.call(\"zadd\",KEYS[1],now + ARGV[2],ARGV[1] .. \"#\" .. i) ");
+    sb.append("end ");
+    sb.append("local last = redis.call(\"zrange\",KEYS[1],-1,-1,\"WITHSCORES\") ");
+    sb.append("redis.call(\"pexpire\",KEYS[1],tonumber(last[2]) - now) ");
+    sb.append("return {1} ");
+    SEMAPHORE_RENEW_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(clock);
+    sb.append("redis.call(\"zremrangebyscore\",KEYS[1],\"-inf\",now) ");
+    sb.append("local available = tonumber(ARGV[1]) - redis.call(\"zcard\",KEYS[1]) ");
+    sb.append("if available < 0 then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("return available ");
+    SEMAPHORE_AVAILABLE_SCRIPT = new RedisLockScript(sb.toString());
+    // 公平模式脚本公共部分：移除心跳过期的排队者
+    prefix = new StringBuilder(clock);
+    prefix.append("local function reap() ");
+    prefix.append("    local dead = redis.call(\"zrangebyscore\",KEYS[4],\"-inf\",now) ");
+    prefix.append("    for i = 1, #dead do ");
+    prefix.append("        redis.call(\"zrem\",KEYS[3],dead[i]) ");
+    prefix.append("    end ");
+    prefix.append("    redis.call(\"zremrangebyscore\",KEYS[4],\"-inf\",now) ");
+    prefix.append("end ");
+    sb = new StringBuilder(prefix);
+    sb.append("reap() ");
+    sb.append("if not redis.call(\"zscore\",KEYS[3],ARGV[1]) then ");
+    sb.append("    redis.call(\"zadd\",KEYS[3],now,ARGV[1]) ");
+    sb.append("end ");
+    sb.append("redis.call(\"zadd\",KEYS[4],now + ARGV[3],ARGV[1]) ");
+    sb.append("if redis.call(\"zrange\",KEYS[3],0,0)[1] == ARGV[1] and redis.call(\"set\",KEYS[1],ARGV[1],\"PX\",ARGV[2],\"NX\") then ");
+    sb.append("    redis.call(\"zrem\",KEYS[3],ARGV[1]) ");
+    sb.append("    redis.call(\"zrem\",KEYS[4],ARGV[1]) ");
+    sb.append("    return " + RedisLockProvider.NEXT_TOKEN + " ");
+    sb.append("end ");
+    // 所有排队者都宕机后队列随心跳过期
+    sb.append("redis.call(\"pexpire\",KEYS[3],ARGV[3]) ");
+    sb.append("redis.call(\"pexpire\",KEYS[4],ARGV[3]) ");
+    sb.append("return 0 ");
+    FAIR_ACQUIRE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder(prefix);
+    sb.append("if redis.call(\"get\",KEYS[1]) ~= ARGV[1] then ");
     sb.append("    return 0 ");
     sb.append("end ");
-    RELEASE_LUA = sb.toString();
+    sb.append("redis.call(\"del\",KEYS[1]) ");
+    sb.append("if ARGV[2] then ");
+    sb.append("    reap() ");
+    sb.append("    redis.call(\"publish\",ARGV[2],redis.call(\"zrange\",KEYS[3],0,0)[1] or KEYS[1]) ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    FAIR_RELEASE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
+    sb.append("local head = redis.call(\"zrange\",KEYS[3],0,0)[1] ");
+    sb.append("redis.call(\"zrem\",KEYS[3],ARGV[1]) ");
+    sb.append("redis.call(\"zrem\",KEYS[4],ARGV[1]) ");
+    sb.append("if head == ARGV[1] and ARGV[2] and redis.call(\"exists\",KEYS[1]) == 0 then ");
+    sb.append("    local next = redis.call(\"zrange\",KEYS[3],0,0)[1] ");
+    sb.append("    if next then ");
+    sb.append("        redis.call(\"publish\",ARGV[2],next) ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    FAIR_CANCEL_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
+    sb.append("if redis.call(\"exists\",KEYS[1]) == 0 then ");
+    sb.append("    local token = " + RedisLockProvider.NEXT_TOKEN + " ");
+    sb.append("    redis.call(\"hmset\",KEYS[1],ARGV[1],1,\"" + RedisLockProvider.REENTRANT_TOKEN_FIELD + "\",token) ");
+    sb.append("    redis.call(\"pexpire\",KEYS[1],ARGV[2]) ");
+    sb.append("    return token ");
+    sb.append("end ");
+    // 同一个持有者重入，只延长不缩短过期时间
+    sb.append("if redis.call(\"type\",KEYS[1]).ok == \"hash\" and redis.call(\"hexists\",KEYS[1],ARGV[1]) == 1 then ");
+    sb.append("    redis.call(\"hincrby\",KEYS[1],ARGV[1],1) ");
+    sb.append("    if redis.call(\"pttl\",KEYS[1]) < tonumber(ARGV[2]) then ");
+    sb.append("        redis.call(\"pexpire\",KEYS[1],ARGV[2]) ");
+    sb.append("    end ");
+    sb.append("    return tonumber(redis.call(\"hget\",KEYS[1],\"" + RedisLockProvider.REENTRANT_TOKEN_FIELD + "\")) ");
+    sb.append("end ");
+    sb.append("local ttl = redis.call(\"pttl\",KEYS[1]) ");
+    sb.append("if ttl > 0 then ");
+    sb.append("    return -ttl ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    REENTRANT_ACQUIRE_SCRIPT = new RedisLockScript(sb.toString());
+    sb = new StringBuilder();
+    sb.append("if redis.call(\"type\",KEYS[1]).ok ~= \"hash\" or redis.call(\"hexists\",KEYS[1],ARGV[1]) == 0 then ");
+    sb.append("    return -1 ");
+    sb.append("end ");
+    sb.append("local count = redis.call(\"hincrby\",KEYS[1],ARGV[1],-1) ");
+    sb.append("if count > 0 then ");
+    sb.append("    return count ");
+    sb.append("end ");
+    sb.append("redis.call(\"del\",KEYS[1]) ");
+    sb.append("if ARGV[2] then ");
+    sb.append("    redis.call(\"publish\",ARGV[2],KEYS[1]) ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    REENTRANT_RELEASE_SCRIPT = new RedisLockScript(sb.toString());
   }
 
   private RedisLockClient lockRedisClient;
 
+  /**
+   * 锁释放通知，为空时等待者随机休眠轮询
+   */
+  private RedisLockNotifier notifier;
+
+  /**
+   * 看门狗，为开启了 watchdog 的锁自动续期
+   */
+  private RedisLockWatchdog watchdog;
+
   /**
    * 构造函数，必须指定一个 redis client
    * @param lockRedisClient
    */
   @Autowired
   public RedisLockProvider(RedisLockClient lockRedisClient){
+    this(lockRedisClient, null);
+  }
+
+  /**
+   * 构造函数，开启释放通知后，等待者在锁释放时立即被唤醒
+   * @param lockRedisClient redis client
+   * @param notifier 锁释放通知，可以为空
+   */
+  public RedisLockProvider(RedisLockClient lockRedisClient, RedisLockNotifier notifier){
     Objects.requireNonNull(lockRedisClient);
     this.lockRedisClient = lockRedisClient;
+    this.notifier = notifier;
+    this.watchdog = new RedisLockWatchdog(lockRedisClient);
+    // 预加载脚本，之后只发送 sha1
+    lockRedisClient.loadScripts(ACQUIRE_SCRIPT, RELEASE_SCRIPT, ACQUIRE_ALL_SCRIPT, RELEASE_ALL_SCRIPT, RedisLockWatchdog.RENEW_SCRIPT,
+        READ_SCRIPT, WRITE_SCRIPT, READ_WRITE_RELEASE_SCRIPT, READ_WRITE_RENEW_SCRIPT,
+        SEMAPHORE_ACQUIRE_SCRIPT, SEMAPHORE_RELEASE_SCRIPT, SEMAPHORE_RENEW_SCRIPT, SEMAPHORE_AVAILABLE_SCRIPT,
+        FAIR_ACQUIRE_SCRIPT, FAIR_RELEASE_SCRIPT, FAIR_CANCEL_SCRIPT, REENTRANT_ACQUIRE_SCRIPT, REENTRANT_RELEASE_SCRIPT);
   }
 
   @Override
   public boolean doAcquire(CompositeSharedLock lock) {
-    String uuid = UUID.randomUUID().toString();
-    // 设置 数据
-    lock.setProviderData(uuid);
-    return lockRedisClient.setNX(lock.getKey(), uuid, lock.getLockSeconds());
+    String uuid = ownerOf(lock);
+    return tryAcquire(lock, uuid, acquireArgs(lock, uuid));
   }
 
   @Override
   public boolean doAcquire(CompositeSharedLock lock, long time, TimeUnit unit) {
-    String uuid = UUID.randomUUID().toString();
-    // 设置 数据
-    lock.setProviderData(uuid);
+    String uuid = ownerOf(lock);
+    // 参数只编码一次，每次重试复用
+    byte[][] keysAndArgs = acquireArgs(lock, uuid);
     long stopTime = unit.toMillis(time) + System.currentTimeMillis();
     do{
       // 如果设置成功
-      if (lockRedisClient.setNX(lock.getKey(), uuid, lock.getLockSeconds())) {
+      if (tryAcquire(lock, uuid, keysAndArgs)) {
         return true;
       }
+      // 持有者在超时前不会释放，直接放弃
+      if (!isWorthWaiting(lock, stopTime - System.currentTimeMillis())) {
+        return false;
+      }
       try {
-        // 随机休眠
-        Thread.sleep((long) (200 + (int) 500 * Math.random()));
+        // 随机休眠，开启通知时锁释放立即唤醒，不会休眠到锁过期之后
+        awaitRelease(lock, (long) (200 + (int) 500 * Math.random()), stopTime - System.currentTimeMillis());
       } catch (InterruptedException e) {
         return false;
       }
@@ -75,21 +452,758 @@ public class RedisLockProvider implements ISharedLockProvider {
     return false;
   }
 
+  @Override
+  public void awaitRelease(CompositeSharedLock lock, long sleepMills, long maxWaitMills) throws InterruptedException {
+    if (isQueued(lock)) {
+      // 排队期间按时刷新心跳，开启通知时只有成为队首才被唤醒
+      long mills = Math.min(maxWaitMills, FAIR_HEARTBEAT_MILLS / 3);
+      if (notifier == null) {
+        ISharedReadWriteLockProvider.super.awaitRelease(lock, sleepMills, mills);
+      } else {
+        notifier.await(notifier.ticketKey(lock.getKey(), lock.getProviderData()), mills);
+      }
+      return;
+    }
+    if (notifier == null) {
+      ISharedReadWriteLockProvider.super.awaitRelease(lock, sleepMills, maxWaitMills);
+      return;
+    }
+    // 等待释放通知，不再轮询，登记等待者后再查询一次持有者，锁过期不会发送通知，最多等到持有者过期
+    notifier.await(lock.getKey(), holderBound(lock, maxWaitMills), () -> holderTtl(lock));
+  }
+
+  /**
+   * 查询持有者剩余持有时长，登记等待者之后调用
+   * @param lock 锁对象
+   * @return 剩余持有时长，单位毫秒，锁已释放返回 {@link RedisLockNotifier#RELEASED_TTL}，查询失败返回 -1
+   */
+  protected long holderTtl(CompositeSharedLock lock) {
+    try {
+      return lockRedisClient.pttl(lock.getKey());
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 查询持有者剩余持有时长失败", lock.getKey(), e);
+      return -1L;
+    }
+  }
+
+  /**
+   * 异步查询持有者剩余持有时长，登记等待者之后调用
+   * @param lock 锁对象
+   * @return 剩余持有时长，单位毫秒，锁已释放返回 {@link RedisLockNotifier#RELEASED_TTL}，查询失败返回 -1
+   */
+  protected CompletableFuture<Long> holderTtlAsync(CompositeSharedLock lock) {
+    return SharedLockTimer.supply(() -> holderTtl(lock));
+  }
+
+  @Override
+  public boolean isWorthWaiting(CompositeSharedLock lock, long maxWaitMills) {
+    IProviderConfigurer configurer = lock.getProviderConfigurer();
+    if (!(configurer instanceof RedisConfigurer) || !((RedisConfigurer) configurer).isFailFastEnabled() || isQueued(lock)) {
+      return true;
+    }
+    long ttl = lock.getHolderTtlMills();
+    return ttl <= 0 || ttl <= maxWaitMills;
+  }
+
+  /**
+   * 等待时长不超过持有者剩余持有时长
+   * @param lock 锁对象
+   * @param maxWaitMills 剩余可等待时长，单位毫秒
+   * @return 等待时长，单位毫秒
+   */
+  private static long holderBound(CompositeSharedLock lock, long maxWaitMills) {
+    long ttl = lock.getHolderTtlMills();
+    return ttl > 0 ? Math.min(ttl, maxWaitMills) : maxWaitMills;
+  }
+
+  @Override
+  public CompletableFuture<Void> awaitReleaseAsync(CompositeSharedLock lock, long sleepMills, long maxWaitMills) {
+    if (isQueued(lock)) {
+      long mills = Math.min(maxWaitMills, FAIR_HEARTBEAT_MILLS / 3);
+      if (notifier == null) {
+        return ISharedReadWriteLockProvider.super.awaitReleaseAsync(lock, sleepMills, mills);
+      }
+      return notifier.awaitAsync(notifier.ticketKey(lock.getKey(), lock.getProviderData()), mills);
+    }
+    if (notifier == null) {
+      return ISharedReadWriteLockProvider.super.awaitReleaseAsync(lock, sleepMills, maxWaitMills);
+    }
+    return notifier.awaitAsync(lock.getKey(), holderBound(lock, maxWaitMills), () -> holderTtlAsync(lock));
+  }
+
   @Override
   public boolean doRelease(CompositeSharedLock lock) throws UnLockFailSharedLockException {
     String uuid =  lock.getProviderData();
+    if (isReentrant(lock)) {
+      return releaseReentrant(lock, uuid);
+    }
     if (StringUtils.isEmpty(uuid)) {
       throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
     }
-    // 先来 lua 释放
-    if (lockRedisClient.releaseByLua(RELEASE_LUA, lock.getKey(), uuid)) {
-      return true;
+    watchdog.unregister(lock.getKey(), uuid);
+    if (isQueued(lock)) {
+      return lockRedisClient.releaseByLua(FAIR_RELEASE_SCRIPT, fairKeys(lock), fairArgs(lock, uuid));
     }
-    // 降级释放
-    // 如果存在，key ，切value == uuid
-    if (uuid.equals(lockRedisClient.get(lock.getKey()))) {
-      return lockRedisClient.delete(lock.getKey());
+    // lua 原子释放，key 只编码一次，通知频道复用已编码的 key
+    byte[] key = SharedlockUtils.stringToBytes(lock.getKey());
+    if (notifier == null) {
+      return lockRedisClient.releaseByLua(RELEASE_SCRIPT, 1, key, SharedlockUtils.stringToBytes(uuid));
     }
-    return false;
+    return lockRedisClient.releaseByLua(RELEASE_SCRIPT, 1, key, SharedlockUtils.stringToBytes(uuid), notifier.channel(key));
+  }
+
+  @Override
+  public boolean doAcquireAll(List<CompositeSharedLock> locks) {
+    String uuid = SharedLockOwnerToken.next();
+    if (!lockRedisClient.isCluster()) {
+      // 一次请求全部获取
+      return acquired(locks, uuid, lockRedisClient.acquireAllByLua(ACQUIRE_ALL_SCRIPT, acquireAllKeys(locks), acquireAllArgs(locks, uuid)));
+    }
+    // cluster 模式下按 slot 分组，每个 slot 一个脚本，所有脚本通过一个 pipeline 发送，部分分组失败时释放已获取的分组
+    List<List<CompositeSharedLock>> groups = new ArrayList<>(RedisClusterKeys.groupBySlot(locks, CompositeSharedLock::getKey).values());
+    List<List<String>> keys = new ArrayList<>(groups.size());
+    List<List<String>> args = new ArrayList<>(groups.size());
+    for (List<CompositeSharedLock> group : groups) {
+      keys.add(acquireAllKeys(group));
+      args.add(acquireAllArgs(group, uuid));
+    }
+    List<List<Long>> results = lockRedisClient.acquireAllInPipeline(ACQUIRE_ALL_SCRIPT, keys, args);
+    List<CompositeSharedLock> acquired = new ArrayList<>(locks.size());
+    boolean success = true;
+    for (int i = 0; i < groups.size(); i ++) {
+      if (acquired(groups.get(i), uuid, results.get(i))) {
+        acquired.addAll(groups.get(i));
+      } else {
+        success = false;
+      }
+    }
+    if (!success && !acquired.isEmpty()) {
+      releaseAllInCluster(acquired, uuid);
+    }
+    return success;
+  }
+
+  /**
+   * 生成批量获取脚本的 key，依次是所有锁 key、所有 fencing token 计数器 key
+   * @param locks 同一个 slot 的锁列表
+   * @return key 列表
+   */
+  private List<String> acquireAllKeys(List<CompositeSharedLock> locks) {
+    List<String> keys = new ArrayList<>(locks.size() * 2);
+    for (CompositeSharedLock lock : locks) {
+      keys.add(lock.getKey());
+    }
+    for (CompositeSharedLock lock : locks) {
+      keys.add(fencingKey(lock));
+    }
+    return keys;
+  }
+
+  /**
+   * 生成批量获取脚本的参数，依次是持有者、每个锁的锁定时长（毫秒）
+   * @param locks 同一个 slot 的锁列表
+   * @param uuid 持有者
+   * @return 参数
+   */
+  private static List<String> acquireAllArgs(List<CompositeSharedLock> locks, String uuid) {
+    List<String> args = new ArrayList<>(locks.size() + 1);
+    args.add(uuid);
+    for (CompositeSharedLock lock : locks) {
+      args.add(String.valueOf(TimeUnit.SECONDS.toMillis(lock.getLockSeconds())));
+    }
+    return args;
+  }
+
+  /**
+   * 处理批量获取结果，全部获取成功时设置持有者、fencing token 并交给看门狗
+   * @param locks 同一个 slot 的锁列表
+   * @param uuid 持有者
+   * @param tokens 脚本返回的 fencing token
+   * @return 是否全部获取成功
+   */
+  private boolean acquired(List<CompositeSharedLock> locks, String uuid, List<Long> tokens) {
+    if (tokens == null || tokens.size() != locks.size()) {
+      return false;
+    }
+    for (int i = 0; i < locks.size(); i ++) {
+      CompositeSharedLock lock = locks.get(i);
+      lock.setProviderData(uuid);
+      lock.setFencingToken(fencingToken(lock, tokens.get(i)));
+      watch(lock, uuid);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean doReleaseAll(List<CompositeSharedLock> locks) throws UnLockFailSharedLockException {
+    String uuid = locks.get(0).getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", locks.get(0).getKey()));
+    }
+    if (!lockRedisClient.isCluster()) {
+      // 一次请求全部释放
+      return released(lockRedisClient.releaseAllByLua(RELEASE_ALL_SCRIPT, releaseAllKeys(locks, uuid), releaseAllArgs(uuid)));
+    }
+    return releaseAllInCluster(locks, uuid);
+  }
+
+  /**
+   * cluster 模式下按 slot 分组释放，每个 slot 一个脚本，所有脚本通过一个 pipeline 发送
+   * @param locks 锁列表
+   * @param uuid 持有者
+   * @return 是否全部释放成功
+   */
+  private boolean releaseAllInCluster(List<CompositeSharedLock> locks, String uuid) {
+    Collection<List<CompositeSharedLock>> groups = RedisClusterKeys.groupBySlot(locks, CompositeSharedLock::getKey).values();
+    List<List<String>> keys = new ArrayList<>(groups.size());
+    List<List<String>> args = new ArrayList<>(groups.size());
+    for (List<CompositeSharedLock> group : groups) {
+      keys.add(releaseAllKeys(group, uuid));
+      args.add(releaseAllArgs(uuid));
+    }
+    boolean released = true;
+    for (List<Long> result : lockRedisClient.releaseAllInPipeline(RELEASE_ALL_SCRIPT, keys, args)) {
+      released = released(result) && released;
+    }
+    return released;
+  }
+
+  /**
+   * 生成批量释放脚本的 key，同时停止看门狗续期
+   * @param locks 同一个 slot 的锁列表
+   * @param uuid 持有者
+   * @return 锁 key 列表
+   */
+  private List<String> releaseAllKeys(List<CompositeSharedLock> locks, String uuid) {
+    List<String> keys = new ArrayList<>(locks.size());
+    for (CompositeSharedLock lock : locks) {
+      watchdog.unregister(lock.getKey(), uuid);
+      keys.add(lock.getKey());
+    }
+    return keys;
+  }
+
+  /**
+   * 生成批量释放脚本的参数，依次是持有者、可选的释放通知频道前缀
+   * @param uuid 持有者
+   * @return 参数
+   */
+  private List<String> releaseAllArgs(String uuid) {
+    return notifier == null ? Collections.singletonList(uuid) : Arrays.asList(uuid, RedisLockNotifier.CHANNEL_PREFIX);
   }
+
+  /**
+   * 处理批量释放结果
+   * @param result 脚本返回的每个 key 的释放结果
+   * @return 是否全部释放成功
+   */
+  private static boolean released(List<Long> result) {
+    if (result == null) {
+      return false;
+    }
+    for (Long released : result) {
+      if (released != 1L) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean doExtend(CompositeSharedLock lock, long time, TimeUnit unit) {
+    String uuid =  lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      return false;
+    }
+    return watchdog.renew(lock.getKey(), uuid, unit.toMillis(time));
+  }
+
+  @Override
+  public boolean doAcquire(CompositeSharedLock lock, ReadWriteMode mode) {
+    String uuid = SharedLockOwnerToken.next();
+    lock.setProviderData(uuid);
+    RedisLockScript script = mode == ReadWriteMode.READ ? READ_SCRIPT : WRITE_SCRIPT;
+    long token = lockRedisClient.acquireByLua(script, lock.getKey(), fencingKey(lock), uuid, TimeUnit.SECONDS.toMillis(lock.getLockSeconds()));
+    if (token <= 0) {
+      return false;
+    }
+    lock.setFencingToken(fencingToken(lock, token));
+    return true;
+  }
+
+  @Override
+  public boolean doRelease(CompositeSharedLock lock, ReadWriteMode mode) throws UnLockFailSharedLockException {
+    String uuid =  lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+    }
+    if (notifier == null) {
+      return lockRedisClient.releaseByLua(READ_WRITE_RELEASE_SCRIPT, lock.getKey(), uuid);
+    }
+    return lockRedisClient.releaseByLua(READ_WRITE_RELEASE_SCRIPT, lock.getKey(), uuid, notifier.channel(lock.getKey()));
+  }
+
+  @Override
+  public boolean doExtend(CompositeSharedLock lock, ReadWriteMode mode, long time, TimeUnit unit) {
+    String uuid =  lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      return false;
+    }
+    List<Long> result = lockRedisClient.renewByLua(READ_WRITE_RENEW_SCRIPT, Collections.singletonList(lock.getKey()), Arrays.asList(uuid, String.valueOf(unit.toMillis(time))));
+    return result != null && !result.isEmpty() && result.get(0) == 1L;
+  }
+
+  @Override
+  public boolean doAcquirePermits(CompositeSharedLock lock, int permits, int totalPermits) {
+    String uuid = SharedLockOwnerToken.next();
+    lock.setProviderData(uuid);
+    long token = lockRedisClient.acquireByLua(SEMAPHORE_ACQUIRE_SCRIPT, Arrays.asList(lock.getKey(), fencingKey(lock)),
+        Arrays.asList(uuid, String.valueOf(TimeUnit.SECONDS.toMillis(lock.getLockSeconds())), String.valueOf(permits), String.valueOf(totalPermits)));
+    if (token <= 0) {
+      return false;
+    }
+    lock.setFencingToken(fencingToken(lock, token));
+    return true;
+  }
+
+  @Override
+  public boolean doReleasePermits(CompositeSharedLock lock, int permits) throws UnLockFailSharedLockException {
+    String uuid =  lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      throw new IllegalArgumentException(String.format("redis 信号量 %s provider data不存在", lock.getKey()));
+    }
+    if (notifier == null) {
+      return lockRedisClient.releaseByLua(SEMAPHORE_RELEASE_SCRIPT, lock.getKey(), uuid, String.valueOf(permits));
+    }
+    return lockRedisClient.releaseByLua(SEMAPHORE_RELEASE_SCRIPT, lock.getKey(), uuid, String.valueOf(permits), notifier.channel(lock.getKey()));
+  }
+
+  @Override
+  public int availablePermits(CompositeSharedLock lock, int totalPermits) {
+    Long available = lockRedisClient.countByLua(SEMAPHORE_AVAILABLE_SCRIPT, Collections.singletonList(lock.getKey()), Collections.singletonList(String.valueOf(totalPermits)));
+    return available == null ? 0 : available.intValue();
+  }
+
+  @Override
+  public boolean doExtendPermits(CompositeSharedLock lock, int permits, long time, TimeUnit unit) {
+    String uuid =  lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      return false;
+    }
+    List<Long> result = lockRedisClient.renewByLua(SEMAPHORE_RENEW_SCRIPT, Collections.singletonList(lock.getKey()),
+        Arrays.asList(uuid, String.valueOf(unit.toMillis(time)), String.valueOf(permits)));
+    return result != null && !result.isEmpty() && result.get(0) == 1L;
+  }
+
+  /**
+   * 生成服务端临界区脚本，脚本只需要生成一次，建议保存为常量
+   * <p>
+   *   body 是普通的 lua 脚本，其中的 KEYS、ARGV 是 {@link #executeAtomically(RedisLockScript, String, List, List)} 去掉锁 key 和持有者之后的部分，
+   *   只能返回一个值。例如 {@code local v = redis.call("decr",KEYS[1]) if v < 0 then redis.call("incr",KEYS[1]) return -1 end return v}
+   * </p>
+   * @param body 业务脚本
+   * @return 包装了持有者检查的脚本
+   */
+  public static RedisLockScript atomicScript(String body) {
+    Objects.requireNonNull(body);
+    StringBuilder sb = new StringBuilder();
+    sb.append("local held = redis.call(\"type\",KEYS[1]).ok ");
+    sb.append("if held ~= \"none\" then ");
+    sb.append("    local mine = ARGV[1] ~= \"\" and ((held == \"string\" and redis.call(\"get\",KEYS[1]) == ARGV[1]) ");
+    sb.append("        or (held == \"hash\" and redis.call(\"hexists\",KEYS[1],ARGV[1]) == 1)) ");
+    sb.append("    if not mine then ");
+    sb.append("        return {0,redis.call(\"pttl\",KEYS[1])} ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("local keys, args = {}, {} ");
+    sb.append("for i = 2, #KEYS do keys[i - 1] = KEYS[i] end ");
+    sb.append("for i = 2, #ARGV do args[i - 1] = ARGV[i] end ");
+    sb.append("local function body(KEYS, ARGV) \n");
+    sb.append(body);
+    sb.append("\nend ");
+    sb.append("return {1,(body(keys,args))} ");
+    return new RedisLockScript(sb.toString());
+  }
+
+  /**
+   * 在服务端原子执行一小段临界区，不获取锁，见 {@link #executeAtomically(RedisLockScript, String, List, List)}
+   * @param script {@link #atomicScript(String)} 生成的脚本
+   * @param keys key 列表，第一个是锁 key
+   * @param args 脚本参数
+   * @return 执行结果
+   */
+  public RedisAtomicResult executeAtomically(RedisLockScript script, List<String> keys, List<String> args) {
+    return executeAtomically(script, null, keys, args);
+  }
+
+  /**
+   * 在服务端原子执行一小段临界区，不获取锁
+   * <p>
+   *   只保护 redis 自身数据的简短读改写不需要 获取、执行、释放 三次往返，脚本先检查锁 key 没有被其他持有者持有，然后在同一个脚本中执行业务操作，
+   *   一次往返完成，也不占用租约。锁 key 按全局 key 编码策略编码，与 {@link net.madtiger.lock.SharedLockBuilder} 创建的锁互斥；
+   *   cluster 模式下锁 key 和业务 key 必须在同一个 slot，使用相同的 hash tag 即可，{@link net.madtiger.lock.HashedKeyEncoder} 编码时原样保留 hash tag。脚本错误直接抛出
+   * </p>
+   * @param script {@link #atomicScript(String)} 生成的脚本
+   * @param owner 持有者，与锁的持有者相同时视为已持有锁，可以为空
+   * @param keys key 列表，第一个是锁 key，其余是业务 key
+   * @param args 脚本参数
+   * @return 执行结果
+   */
+  public RedisAtomicResult executeAtomically(RedisLockScript script, String owner, List<String> keys, List<String> args) {
+    if (keys == null || keys.isEmpty()) {
+      throw new IllegalArgumentException("服务端临界区至少需要一个锁 key");
+    }
+    List<String> allKeys = new ArrayList<>(keys);
+    allKeys.set(0, SharedLockEnvironment.getInstance().getKeyEncoder().encode(keys.get(0)));
+    List<String> allArgs = new ArrayList<>(args.size() + 1);
+    allArgs.add(owner == null ? "" : owner);
+    allArgs.addAll(args);
+    List<Object> result = lockRedisClient.executeByLua(script, allKeys.size(), RedisLockClient.toKeysAndArgs(allKeys, allArgs));
+    if (result == null || result.isEmpty()) {
+      throw new IllegalStateException(String.format("redis 服务端临界区 %s 返回值为空", keys.get(0)));
+    }
+    Object value = result.size() > 1 ? decode(result.get(1)) : null;
+    if (Long.valueOf(1L).equals(result.get(0))) {
+      return new RedisAtomicResult(true, value, UNKNOWN_HOLDER_TTL);
+    }
+    return new RedisAtomicResult(false, null, value instanceof Long && (Long) value > 0 ? (Long) value : UNKNOWN_HOLDER_TTL);
+  }
+
+  /**
+   * 把脚本返回的字节数组转换成字符串
+   * @param value 脚本返回值
+   * @return 转换结果
+   */
+  private static Object decode(Object value) {
+    if (value instanceof byte[]) {
+      return SharedlockUtils.bytesToString((byte[]) value);
+    }
+    if (value instanceof List) {
+      List<Object> list = new ArrayList<>(((List<?>) value).size());
+      for (Object item : (List<?>) value) {
+        list.add(decode(item));
+      }
+      return list;
+    }
+    return value;
+  }
+
+  /**
+   * 尝试获取一次锁，成功后设置 fencing token
+   * @param lock 锁对象
+   * @param uuid 持有者
+   * @param keysAndArgs {@link #acquireArgs(CompositeSharedLock, String)} 编码的参数
+   * @return 是否成功
+   */
+  private boolean tryAcquire(CompositeSharedLock lock, String uuid, byte[][] keysAndArgs) {
+    boolean queued = isQueued(lock);
+    RedisLockScript script = queued ? FAIR_ACQUIRE_SCRIPT : acquireScript(lock);
+    int numKeys = queued ? FAIR_KEY_COUNT : 2;
+    long token = lock.getReplicas() > 0
+        ? lockRedisClient.acquireByLua(script, numKeys, keysAndArgs, lock.getReplicas(), lock.getReplicaTimeoutMills(), rollbackScript(lock, queued), rollbackArgs(lock, numKeys, keysAndArgs))
+        : lockRedisClient.acquireByLua(script, numKeys, keysAndArgs);
+    if (!acquired(lock, token)) {
+      return false;
+    }
+    lock.setProviderData(uuid);
+    lock.setFencingToken(fencingToken(lock, token));
+    watch(lock, uuid);
+    return true;
+  }
+
+  /**
+   * 副本确认不足时回滚本次获取的脚本
+   * @param lock 锁对象
+   * @param queued 是否公平排队
+   * @return 回滚脚本，可重入锁只回滚本次重入
+   */
+  private RedisLockScript rollbackScript(CompositeSharedLock lock, boolean queued) {
+    if (queued) {
+      return FAIR_RELEASE_SCRIPT;
+    }
+    return isReentrant(lock) ? REENTRANT_RELEASE_SCRIPT : RELEASE_SCRIPT;
+  }
+
+  /**
+   * 编码回滚脚本的参数，复用获取脚本的 key 和持有者，开启通知时唤醒等待者
+   * @param lock 锁对象
+   * @param numKeys key 数量
+   * @param keysAndArgs 获取脚本已编码的 key 和参数
+   * @return 回滚脚本已编码的 key 和参数
+   */
+  private byte[][] rollbackArgs(CompositeSharedLock lock, int numKeys, byte[][] keysAndArgs) {
+    String channel = releaseChannel(lock);
+    byte[][] args = Arrays.copyOf(keysAndArgs, channel == null ? numKeys + 1 : numKeys + 2);
+    if (channel != null) {
+      args[numKeys + 1] = SharedlockUtils.stringToBytes(channel);
+    }
+    return args;
+  }
+
+  /**
+   * 释放可重入锁，重入次数减到 0 时才取消看门狗续期，每次获取最多释放一次
+   * @param lock 锁对象
+   * @param uuid 本次获取成功的持有者，获取失败或者已经释放时为空
+   * @return 是否释放成功
+   */
+  private boolean releaseReentrant(CompositeSharedLock lock, String uuid) {
+    if (StringUtils.isEmpty(uuid)) {
+      return false;
+    }
+    lock.setProviderData(null);
+    String channel = releaseChannel(lock);
+    Long remaining = lockRedisClient.countByLua(REENTRANT_RELEASE_SCRIPT, Collections.singletonList(lock.getKey()),
+        channel == null ? Collections.singletonList(uuid) : Arrays.asList(uuid, channel));
+    if (remaining == null || remaining < 0) {
+      return false;
+    }
+    if (remaining == 0) {
+      watchdog.unregister(lock.getKey(), uuid);
+    }
+    return true;
+  }
+
+  /**
+   * 互斥锁的加锁脚本
+   * @param lock 锁对象
+   * @return 开启服务端可重入时返回 {@link #REENTRANT_ACQUIRE_SCRIPT}
+   */
+  protected RedisLockScript acquireScript(CompositeSharedLock lock) {
+    return isReentrant(lock) ? REENTRANT_ACQUIRE_SCRIPT : ACQUIRE_SCRIPT;
+  }
+
+  /**
+   * 记录获取结果，失败时记录持有者剩余持有时长
+   * @param lock 锁对象
+   * @param token 获取脚本的返回值，大于 0 是 fencing token，小于 0 是持有者剩余持有时长的相反数
+   * @return 是否获取成功
+   */
+  protected static boolean acquired(CompositeSharedLock lock, long token) {
+    lock.setHolderTtlMills(token < 0 ? -token : UNKNOWN_HOLDER_TTL);
+    return token > 0;
+  }
+
+  /**
+   * 编码获取锁的脚本参数
+   * @param lock 锁对象
+   * @param uuid 持有者
+   * @return 已编码的 key 和参数
+   */
+  private byte[][] acquireArgs(CompositeSharedLock lock, String uuid) {
+    String lockMills = String.valueOf(TimeUnit.SECONDS.toMillis(lock.getLockSeconds()));
+    if (isQueued(lock)) {
+      return RedisLockClient.toKeysAndArgs(fairKeys(lock), Arrays.asList(uuid, lockMills, String.valueOf(FAIR_HEARTBEAT_MILLS)));
+    }
+    return RedisLockClient.toKeysAndArgs(Arrays.asList(lock.getKey(), fencingKey(lock)), Arrays.asList(uuid, lockMills));
+  }
+
+  @Override
+  public void cancelAcquire(CompositeSharedLock lock) {
+    if (!isQueued(lock)) {
+      return;
+    }
+    String uuid = lock.getProviderData();
+    // 退出排队，避免后面的等待者等到心跳过期
+    lockRedisClient.releaseByLua(FAIR_CANCEL_SCRIPT, fairKeys(lock), fairArgs(lock, uuid));
+  }
+
+  /**
+   * 互斥锁本次获取使用的持有者，公平模式下使用 ticket 作为持有者，重试时复用已经排队的 ticket
+   * <p>
+   *   可重入锁的持有者由多次获取共用，provider data 先清空，本次获取成功后才记录，
+   *   获取失败（包括副本确认不足已经回滚）后释放是空操作，不会减少同一个持有者其他获取的重入次数
+   * </p>
+   * @param lock 锁对象
+   * @return 持有者
+   */
+  protected String ownerOf(CompositeSharedLock lock) {
+    String uuid;
+    if (isReentrant(lock)) {
+      lock.setProviderData(null);
+      // 未指定持有者时同一个线程是同一个持有者
+      return lock.getOwner() != null ? lock.getOwner() : SharedLockOwnerToken.threadOwner();
+    } else if (!isFair(lock)) {
+      uuid = SharedLockOwnerToken.next();
+    } else if (isQueued(lock)) {
+      uuid = lock.getProviderData();
+    } else {
+      uuid = TICKET_PREFIX + SharedLockOwnerToken.next();
+    }
+    // 设置 数据
+    lock.setProviderData(uuid);
+    return uuid;
+  }
+
+  /**
+   * 是否是公平模式
+   * @param lock 锁对象
+   * @return 结果
+   */
+  protected boolean isFair(CompositeSharedLock lock) {
+    IProviderConfigurer configurer = lock.getProviderConfigurer();
+    return configurer instanceof RedisConfigurer && ((RedisConfigurer) configurer).isFairEnabled();
+  }
+
+  /**
+   * 是否开启服务端可重入，开启后忽略公平模式
+   * @param lock 锁对象
+   * @return 结果
+   */
+  protected boolean isReentrant(CompositeSharedLock lock) {
+    IProviderConfigurer configurer = lock.getProviderConfigurer();
+    return configurer instanceof RedisConfigurer && ((RedisConfigurer) configurer).isReentrantEnabled();
+  }
+
+  /**
+   * 是否是通过公平模式排队获取的互斥锁，读写锁、信号量等不排队
+   * @param lock 锁对象
+   * @return 结果
+   */
+  protected boolean isQueued(CompositeSharedLock lock) {
+    String uuid = lock.getProviderData();
+    return uuid != null && uuid.startsWith(TICKET_PREFIX) && isFair(lock);
+  }
+
+  /**
+   * 公平模式脚本的参数
+   * @param lock 锁对象
+   * @param uuid 持有者
+   * @return 持有者和可选的释放通知频道
+   */
+  List<String> fairArgs(CompositeSharedLock lock, String uuid) {
+    return notifier == null ? Collections.singletonList(uuid) : Arrays.asList(uuid, notifier.channel(lock.getKey()));
+  }
+
+  /**
+   * 公平模式脚本的 key
+   * @param lock 锁对象
+   * @return 锁、fencing token 计数器、等待队列、心跳
+   */
+  protected List<String> fairKeys(CompositeSharedLock lock) {
+    String key = lock.getKey();
+    return Arrays.asList(key, fencingKey(lock), relatedKey(key, QUEUE_SUFFIX), relatedKey(key, QUEUE_TIMEOUT_SUFFIX));
+  }
+
+  /**
+   * fencing token 计数器 key
+   * @param lock 锁对象
+   * @return 计数器 key，未开启 fencing token 时返回锁 key 本身
+   */
+  protected String fencingKey(CompositeSharedLock lock) {
+    return fencingKey(lockRedisClient, lock);
+  }
+
+  /**
+   * fencing token 计数器 key，计数器不过期，单机模式所有锁共用一个，cluster 模式同一个 slot 的锁共用一个，
+   * 每次获取都递增，对同一个 key 的持有者始终递增，但不连续
+   * @param client redis client
+   * @param lock 锁对象
+   * @return 计数器 key，未开启 fencing token 时返回锁 key 本身，获取脚本不会递增计数器
+   */
+  static String fencingKey(RedisLockClient client, CompositeSharedLock lock) {
+    if (!isFencingEnabled(lock)) {
+      return lock.getKey();
+    }
+    return client.isCluster() ? RedisClusterKeys.slotKey(lock.getKey(), FENCING_KEY) : FENCING_KEY;
+  }
+
+  /**
+   * 获取成功后锁的 fencing token
+   * @param lock 锁对象
+   * @param token 获取脚本的返回值
+   * @return 未开启 fencing token 时返回 {@link SharedLockConstants#NO_FENCING_TOKEN}
+   */
+  static long fencingToken(CompositeSharedLock lock, long token) {
+    return isFencingEnabled(lock) ? token : SharedLockConstants.NO_FENCING_TOKEN;
+  }
+
+  /**
+   * 是否生成 fencing token
+   * @param lock 锁对象
+   * @return 结果
+   */
+  static boolean isFencingEnabled(CompositeSharedLock lock) {
+    IProviderConfigurer configurer = lock.getProviderConfigurer();
+    return configurer instanceof RedisConfigurer && ((RedisConfigurer) configurer).isFencingEnabled();
+  }
+
+  /**
+   * 锁的关联 key，cluster 模式下与锁 key 在同一个 slot
+   * @param key 锁 key
+   * @param suffix 后缀
+   * @return 关联 key
+   */
+  protected String relatedKey(String key, String suffix) {
+    return lockRedisClient.isCluster() ? RedisClusterKeys.related(key, suffix) : key + suffix;
+  }
+
+  /**
+   * 开启看门狗的锁交由看门狗续期
+   * @param lock 锁对象
+   * @param uuid 持有者
+   */
+  protected void watch(CompositeSharedLock lock, String uuid) {
+    IProviderConfigurer configurer = lock.getProviderConfigurer();
+    if (configurer instanceof RedisConfigurer && ((RedisConfigurer) configurer).isWatchdogEnabled()) {
+      watchdog.register(lock.getKey(), uuid, TimeUnit.SECONDS.toMillis(lock.getLockSeconds()));
+    }
+  }
+
+  /**
+   * 取消看门狗续期
+   * @param lock 锁对象
+   * @param uuid 持有者
+   */
+  protected void unwatch(CompositeSharedLock lock, String uuid) {
+    watchdog.unregister(lock.getKey(), uuid);
+  }
+
+  /**
+   * 锁的释放通知频道
+   * @param lock 锁对象
+   * @return 未开启通知时返回 null
+   */
+  protected String releaseChannel(CompositeSharedLock lock) {
+    return notifier == null ? null : notifier.channel(lock.getKey());
+  }
+
+  /**
+   * 可重入锁保存 fencing token 的字段
+   */
+  private static final String REENTRANT_TOKEN_FIELD = "__fencing";
+
+  /**
+   * fencing token 计数器 key，cluster 模式下加上 slot 对应的 hash tag
+   */
+  static final String FENCING_KEY = "shared-lock:__fencing";
+
+  /**
+   * 获取 fencing token 的 lua 表达式，计数器 key 与锁 key 相同时不递增计数器，返回 1
+   */
+  private static final String NEXT_TOKEN = "(KEYS[2] == KEYS[1] and 1 or redis.call(\"incr\",KEYS[2]))";
+
+  /**
+   * 公平模式等待队列 key 后缀
+   */
+  private static final String QUEUE_SUFFIX = ":__queue";
+
+  /**
+   * 公平模式心跳 key 后缀
+   */
+  private static final String QUEUE_TIMEOUT_SUFFIX = ":__queue_timeout";
+
+  /**
+   * 公平模式 ticket 前缀
+   */
+  private static final String TICKET_PREFIX = "ticket:";
+
+  /**
+   * 公平模式脚本的 key 数量
+   */
+  private static final int FAIR_KEY_COUNT = 4;
+
+  /**
+   * 公平模式排队者的心跳时长，排队者至少每三分之一心跳时长刷新一次
+   */
+  static final long FAIR_HEARTBEAT_MILLS = 3000;
 }
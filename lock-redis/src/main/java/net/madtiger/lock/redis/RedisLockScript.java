@@ -0,0 +1,73 @@
+package net.madtiger.lock.redis;
+
+import java.security.MessageDigest;
+import java.util.Objects;
+import net.madtiger.lock.SharedlockUtils;
+
+/**
+ * redis lua 脚本，创建时计算好 sha1，执行时只发送 sha1
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public final class RedisLockScript {
+
+  /**
+   * 脚本内容
+   */
+  private final byte[] source;
+
+  /**
+   * 脚本 sha1，16 进制小写
+   */
+  private final byte[] sha;
+
+  /**
+   * 创建一个脚本
+   * @param source 脚本内容
+   */
+  public RedisLockScript(String source) {
+    Objects.requireNonNull(source);
+    this.source = SharedlockUtils.stringToBytes(source);
+    this.sha = SharedlockUtils.stringToBytes(sha1Hex(this.source));
+  }
+
+  /**
+   * 获取脚本内容
+   * @return 脚本内容
+   */
+  public byte[] getSource() {
+    return source;
+  }
+
+  /**
+   * 获取脚本 sha1
+   * @return sha1
+   */
+  public byte[] getSha() {
+    return sha;
+  }
+
+  @Override
+  public String toString() {
+    return SharedlockUtils.bytesToString(sha);
+  }
+
+  /**
+   * 计算 sha1
+   * @param bytes 内容
+   * @return 16 进制小写
+   */
+  private static String sha1Hex(byte[] bytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -0,0 +1,339 @@
+package net.madtiger.lock.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * redis 锁看门狗
+ * <p>
+ *   整个 JVM 共用一个调度线程，每次调度把所有到期需要续期的锁合并成一个 lua 脚本请求（cluster 模式下每个 slot 一个脚本，通过 pipeline 一次发送），续期前校验持有者，
+ *   续期失败（锁已过期或者被其他人持有）的锁不再续期
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class RedisLockWatchdog {
+
+  /**
+   * 续期的lua脚本，ARGV 依次是 持有者、续期时长（毫秒）
+   */
+  static final RedisLockScript RENEW_SCRIPT;
+
+  static {
+    StringBuilder sb = new StringBuilder();
+    sb.append("local result = {} ");
+    sb.append("for i = 1, #KEYS do ");
+    // 可重入锁是 hash，持有者是字段
+    sb.append("    local type = redis.call(\"type\",KEYS[i]).ok ");
+    sb.append("    if (type == \"string\" and redis.call(\"get\",KEYS[i]) == ARGV[i * 2 - 1]) ");
+    sb.append("        or (type == \"hash\" and redis.call(\"hexists\",KEYS[i],ARGV[i * 2 - 1]) == 1) ");
+    sb.append("    then ");
+    sb.append("        redis.call(\"pexpire\",KEYS[i],ARGV[i * 2]) ");
+    sb.append("        result[i] = 1 ");
+    sb.append("    else ");
+    sb.append("        result[i] = 0 ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("return result ");
+    RENEW_SCRIPT = new RedisLockScript(sb.toString());
+  }
+
+  /**
+   * 共用的调度线程
+   */
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "shared-lock-redis-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * redis client
+   */
+  private final RedisLockClient lockRedisClient;
+
+  /**
+   * 当前持有的锁，key 是 锁 key + 持有者，同一个持有者可以同时持有多个 key
+   */
+  private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>(64);
+
+  /**
+   * 调度间隔，单位毫秒
+   */
+  private final long tickMills;
+
+  /**
+   * 调度任务
+   */
+  private volatile ScheduledFuture<?> tickFuture;
+
+  /**
+   * 创建一个看门狗
+   * @param lockRedisClient redis client
+   */
+  public RedisLockWatchdog(RedisLockClient lockRedisClient) {
+    this(lockRedisClient, DEFAULT_TICK_MILLS);
+  }
+
+  /**
+   * 创建一个看门狗
+   * @param lockRedisClient redis client
+   * @param tickMills 调度间隔，单位毫秒
+   */
+  public RedisLockWatchdog(RedisLockClient lockRedisClient, long tickMills) {
+    Objects.requireNonNull(lockRedisClient);
+    this.lockRedisClient = lockRedisClient;
+    this.tickMills = tickMills;
+  }
+
+  /**
+   * 注册一个已持有的锁，之后每过三分之一的租期续期一次
+   * @param key 锁 key
+   * @param owner 持有者
+   * @param leaseMills 租期，单位毫秒
+   */
+  public void register(String key, String owner, long leaseMills) {
+    leases.put(leaseId(key, owner), new Lease(key, owner, leaseMills));
+    startIfNecessary();
+  }
+
+  /**
+   * 取消续期，一般在释放锁前调用
+   * @param key 锁 key
+   * @param owner 持有者
+   */
+  public void unregister(String key, String owner) {
+    if (owner != null) {
+      leases.remove(leaseId(key, owner));
+    }
+  }
+
+  /**
+   * 立即续期一个锁，已注册时用新的租期替换注册的租约，之后按新的租期续期，避免下次调度按原租期覆盖
+   * @param key 锁 key
+   * @param owner 持有者
+   * @param leaseMills 新的租期，单位毫秒
+   * @return 是否续期成功
+   */
+  public boolean renew(String key, String owner, long leaseMills) {
+    Lease renewed = new Lease(key, owner, leaseMills);
+    List<Long> result = lockRedisClient.renewByLua(RENEW_SCRIPT, Collections.singletonList(key), buildArgs(Collections.singletonList(renewed)));
+    if (result == null || result.isEmpty() || result.get(0) != 1L) {
+      return false;
+    }
+    leases.computeIfPresent(leaseId(key, owner), (id, lease) -> renewed);
+    return true;
+  }
+
+  /**
+   * 启动调度
+   */
+  private void startIfNecessary() {
+    if (tickFuture != null) {
+      return;
+    }
+    synchronized (this) {
+      if (tickFuture == null) {
+        tickFuture = SCHEDULER.scheduleWithFixedDelay(this::tick, tickMills, tickMills, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * 一次调度，合并续期所有到期的锁
+   */
+  void tick() {
+    if (leases.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    List<Lease> due = new ArrayList<>();
+    for (Lease lease : leases.values()) {
+      if (lease.nextRenewTime <= now) {
+        due.add(lease);
+      }
+    }
+    if (due.isEmpty()) {
+      return;
+    }
+    // cluster 模式下脚本的 key 必须在同一个 slot，按 slot 分组，每组再分批，避免单个脚本执行过久
+    List<List<Lease>> batches = new ArrayList<>();
+    if (lockRedisClient.isCluster()) {
+      for (List<Lease> group : RedisClusterKeys.groupBySlot(due, lease -> lease.key).values()) {
+        addBatches(batches, group);
+      }
+    } else {
+      addBatches(batches, due);
+    }
+    if (batches.size() == 1) {
+      renewBatch(batches.get(0), now);
+    } else {
+      renewInPipeline(batches, now);
+    }
+  }
+
+  /**
+   * 分批
+   * @param batches 批次列表
+   * @param due 需要续期的锁
+   */
+  private static void addBatches(List<List<Lease>> batches, List<Lease> due) {
+    for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+      batches.add(due.subList(from, Math.min(from + BATCH_SIZE, due.size())));
+    }
+  }
+
+  /**
+   * 一次请求续期一批锁
+   * @param batch 需要续期的锁
+   * @param now 当前时间
+   */
+  private void renewBatch(List<Lease> batch, long now) {
+    List<String> keys = keys(batch);
+    List<Long> result;
+    try {
+      result = lockRedisClient.renewByLua(RENEW_SCRIPT, keys, buildArgs(batch));
+    } catch (Exception e) {
+      log.error("spring data redis -> 看门狗续期 {} 失败", keys, e);
+      return;
+    }
+    renewed(batch, result, now);
+  }
+
+  /**
+   * 多批锁的续期脚本通过一个 pipeline 发送，cluster 模式下每个节点一次往返
+   * @param batches 需要续期的锁
+   * @param now 当前时间
+   */
+  private void renewInPipeline(List<List<Lease>> batches, long now) {
+    List<List<String>> keys = new ArrayList<>(batches.size());
+    List<List<String>> args = new ArrayList<>(batches.size());
+    for (List<Lease> batch : batches) {
+      keys.add(keys(batch));
+      args.add(buildArgs(batch));
+    }
+    List<List<Long>> results;
+    try {
+      results = lockRedisClient.renewInPipeline(RENEW_SCRIPT, keys, args);
+    } catch (Exception e) {
+      log.error("spring data redis -> 看门狗续期 {} 失败", keys, e);
+      return;
+    }
+    for (int i = 0; i < batches.size(); i ++) {
+      renewed(batches.get(i), results.get(i), now);
+    }
+  }
+
+  /**
+   * 处理续期结果
+   * @param batch 续期的锁
+   * @param result 每个锁的续期结果，请求失败时为 null
+   * @param now 当前时间
+   */
+  private void renewed(List<Lease> batch, List<Long> result, long now) {
+    // 请求失败，下次调度重试
+    if (result == null) {
+      return;
+    }
+    for (int i = 0; i < batch.size(); i ++) {
+      Lease lease = batch.get(i);
+      if (i < result.size() && result.get(i) == 1L) {
+        lease.nextRenewTime = now + lease.leaseMills / 3;
+      } else {
+        // 锁已经不再属于当前持有者
+        log.warn("spring data redis -> {} 锁已失效，看门狗停止续期", lease.key);
+        leases.remove(leaseId(lease.key, lease.owner), lease);
+      }
+    }
+  }
+
+  /**
+   * 获取锁 key
+   * @param batch 锁
+   * @return 锁 key 列表
+   */
+  private static List<String> keys(List<Lease> batch) {
+    List<String> keys = new ArrayList<>(batch.size());
+    for (Lease lease : batch) {
+      keys.add(lease.key);
+    }
+    return keys;
+  }
+
+  /**
+   * 租约 id
+   * @param key 锁 key
+   * @param owner 持有者
+   * @return id
+   */
+  private static String leaseId(String key, String owner) {
+    return owner + ':' + key;
+  }
+
+  /**
+   * 生成续期脚本参数
+   * @param batch 需要续期的锁
+   * @return 参数
+   */
+  private static List<String> buildArgs(List<Lease> batch) {
+    List<String> args = new ArrayList<>(batch.size() * 2);
+    for (Lease lease : batch) {
+      args.add(lease.owner);
+      args.add(String.valueOf(lease.leaseMills));
+    }
+    return args;
+  }
+
+  /**
+   * 租约
+   */
+  private static final class Lease {
+
+    /**
+     * 锁 key
+     */
+    final String key;
+
+    /**
+     * 持有者
+     */
+    final String owner;
+
+    /**
+     * 租期
+     */
+    final long leaseMills;
+
+    /**
+     * 下次续期时间
+     */
+    volatile long nextRenewTime;
+
+    Lease(String key, String owner, long leaseMills) {
+      this.key = key;
+      this.owner = owner;
+      this.leaseMills = leaseMills;
+      this.nextRenewTime = System.currentTimeMillis() + leaseMills / 3;
+    }
+  }
+
+  /**
+   * 默认调度间隔
+   */
+  public static final long DEFAULT_TICK_MILLS = 500;
+
+  /**
+   * 单个脚本最多续期的锁数量
+   */
+  private static final int BATCH_SIZE = 512;
+}
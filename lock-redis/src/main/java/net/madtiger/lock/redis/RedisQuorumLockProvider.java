@@ -0,0 +1,278 @@
+package net.madtiger.lock.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.SharedLockConstants;
+import net.madtiger.lock.SharedLockOwnerToken;
+import net.madtiger.lock.SharedlockUtils;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.ISharedLockProvider;
+import org.springframework.util.StringUtils;
+
+/**
+ * 多个独立 redis 节点的多数派共享锁服务（Redlock）
+ * <p>
+ *   并行向所有节点发送 SET NX PX，超过半数节点成功且扣除耗时和时钟漂移后锁仍然有效时才算获取成功，否则并行释放所有节点；
+ *   获取耗时接近一次网络往返，与节点数量无关。
+ * </p>
+ * <p>
+ *   不提供 fencing token，始终为 {@link SharedLockConstants#NO_FENCING_TOKEN}，获取只执行 SET NX PX，不读写计数器。即使每个节点各有计数器，每次获取成功的多数派也可能不同，
+ *   取最大值时新的持有者可能拿到比上一个持有者更小的值，无法用于拒绝过期持有者的写入，需要 fencing token 时使用单节点或 cluster 的服务提供者
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class RedisQuorumLockProvider implements ISharedLockProvider {
+
+  /**
+   * 加锁的lua脚本，只执行 SET NX PX，不读写任何计数器，KEYS 是锁，ARGV 依次是 持有者、锁定时长（毫秒），成功返回 1，失败返回 0
+   */
+  static final RedisLockScript ACQUIRE_SCRIPT;
+
+  static {
+    StringBuilder sb = new StringBuilder();
+    sb.append("if redis.call(\"set\",KEYS[1],ARGV[1],\"PX\",ARGV[2],\"NX\") ");
+    sb.append("then ");
+    sb.append("    return 1 ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    ACQUIRE_SCRIPT = new RedisLockScript(sb.toString());
+  }
+
+  /**
+   * 独立的 redis 节点
+   */
+  private final List<RedisLockClient> clients;
+
+  /**
+   * 请求线程池
+   */
+  private final ExecutorService executor;
+
+  /**
+   * 单个节点的最长等待时间，单位毫秒，超时的节点视为失败
+   */
+  private final long nodeTimeoutMills;
+
+  /**
+   * 多数派数量
+   */
+  private final int quorum;
+
+  /**
+   * 构造函数，使用按节点数量限定大小的请求线程池
+   * @param clients 独立的 redis 节点，建议奇数个
+   */
+  public RedisQuorumLockProvider(List<RedisLockClient> clients) {
+    this(clients, newExecutor(clients.size()), DEFAULT_NODE_TIMEOUT_MILLS);
+  }
+
+  /**
+   * 构造函数
+   * @param clients 独立的 redis 节点，建议奇数个
+   * @param executor 请求线程池
+   * @param nodeTimeoutMills 单个节点的最长等待时间，单位毫秒
+   */
+  public RedisQuorumLockProvider(List<RedisLockClient> clients, ExecutorService executor, long nodeTimeoutMills) {
+    Objects.requireNonNull(clients);
+    Objects.requireNonNull(executor);
+    if (clients.isEmpty()) {
+      throw new IllegalArgumentException("至少需要一个 redis 节点");
+    }
+    this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+    this.executor = executor;
+    this.nodeTimeoutMills = nodeTimeoutMills;
+    this.quorum = clients.size() / 2 + 1;
+    for (RedisLockClient client : this.clients) {
+      client.loadScripts(ACQUIRE_SCRIPT, RedisLockProvider.RELEASE_SCRIPT, RedisLockWatchdog.RENEW_SCRIPT);
+    }
+  }
+
+  @Override
+  public boolean doAcquire(CompositeSharedLock lock) {
+    String uuid = SharedLockOwnerToken.next();
+    lock.setProviderData(uuid);
+    return tryAcquire(lock, uuid);
+  }
+
+  @Override
+  public boolean doAcquire(CompositeSharedLock lock, long time, TimeUnit unit) {
+    long stopTime = unit.toMillis(time) + System.currentTimeMillis();
+    do {
+      // 每次重试使用新的持有者，避免与上次未释放干净的节点混淆
+      if (doAcquire(lock)) {
+        return true;
+      }
+      try {
+        awaitRelease(lock, (long) (200 + (int) 500 * Math.random()), stopTime - System.currentTimeMillis());
+      } catch (InterruptedException e) {
+        return false;
+      }
+    } while (System.currentTimeMillis() < stopTime);
+    return false;
+  }
+
+  @Override
+  public boolean doRelease(CompositeSharedLock lock) throws UnLockFailSharedLockException {
+    String uuid = lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+    }
+    return releaseAll(lock.getKey(), uuid) >= quorum;
+  }
+
+  @Override
+  public boolean doExtend(CompositeSharedLock lock, long time, TimeUnit unit) {
+    String uuid = lock.getProviderData();
+    if (StringUtils.isEmpty(uuid)) {
+      return false;
+    }
+    long leaseMills = unit.toMillis(time);
+    long start = System.currentTimeMillis();
+    List<String> keys = Collections.singletonList(lock.getKey());
+    List<String> args = Arrays.asList(uuid, String.valueOf(leaseMills));
+    List<Long> results = fanOut(client -> {
+      List<Long> renewed = client.renewByLua(RedisLockWatchdog.RENEW_SCRIPT, keys, args);
+      return renewed != null && !renewed.isEmpty() ? renewed.get(0) : 0L;
+    });
+    return count(results) >= quorum && validity(leaseMills, start) > 0;
+  }
+
+  /**
+   * 并行向所有节点获取一次锁
+   * @param lock 锁对象
+   * @param uuid 持有者
+   * @return 是否获取成功
+   */
+  private boolean tryAcquire(CompositeSharedLock lock, String uuid) {
+    long leaseMills = TimeUnit.SECONDS.toMillis(lock.getLockSeconds());
+    long start = System.currentTimeMillis();
+    byte[][] keysAndArgs = new byte[][] {SharedlockUtils.stringToBytes(lock.getKey()), SharedlockUtils.stringToBytes(uuid), SharedlockUtils.stringToBytes(String.valueOf(leaseMills))};
+    List<Long> tokens = fanOut(client -> client.acquireByLua(ACQUIRE_SCRIPT, 1, keysAndArgs));
+    long validity = validity(leaseMills, start);
+    if (count(tokens) >= quorum && validity > 0) {
+      // 多数派的计数器不保证单调，不提供 fencing token
+      lock.setFencingToken(SharedLockConstants.NO_FENCING_TOKEN);
+      log.debug("spring data redis -> {} 多数派获取锁成功，剩余有效期 {} 毫秒", lock.getKey(), validity);
+      return true;
+    }
+    // 未达到多数派或已失效，释放所有节点，包括超时的节点
+    releaseAll(lock.getKey(), uuid);
+    return false;
+  }
+
+  /**
+   * 并行释放所有节点
+   * @param key 锁 key
+   * @param uuid 持有者
+   * @return 释放成功的节点数量
+   */
+  private int releaseAll(String key, String uuid) {
+    return count(fanOut(client -> client.releaseByLua(RedisLockProvider.RELEASE_SCRIPT, key, uuid) ? 1L : 0L));
+  }
+
+  /**
+   * 并行向所有节点发送请求，最多等待 {@link #nodeTimeoutMills}，未完成的节点结果为 0
+   * @param action 请求
+   * @return 每个节点的结果
+   */
+  private List<Long> fanOut(Function<RedisLockClient, Long> action) {
+    List<CompletableFuture<Long>> futures = new ArrayList<>(clients.size());
+    for (RedisLockClient client : clients) {
+      futures.add(CompletableFuture.supplyAsync(() -> action.apply(client), executor));
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(nodeTimeoutMills, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      log.warn("spring data redis -> 部分节点请求失败或超时", e);
+    }
+    List<Long> results = new ArrayList<>(futures.size());
+    for (CompletableFuture<Long> future : futures) {
+      Long result = future.isDone() && !future.isCompletedExceptionally() ? future.getNow(0L) : 0L;
+      results.add(result == null ? 0L : result);
+    }
+    return results;
+  }
+
+  /**
+   * 创建请求线程池，线程数为节点数量的 {@link #THREADS_PER_NODE} 倍，队列满时由调用线程执行
+   * @param nodes 节点数量
+   * @return 线程池
+   */
+  private static ExecutorService newExecutor(int nodes) {
+    int threads = Math.max(1, nodes) * THREADS_PER_NODE;
+    AtomicInteger index = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+      Thread thread = new Thread(runnable, "shared-lock-redis-quorum-" + index.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }, new CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * 统计成功的节点数量
+   * @param results 每个节点的结果
+   * @return 结果大于 0 的节点数量
+   */
+  private static int count(List<Long> results) {
+    int count = 0;
+    for (Long result : results) {
+      if (result > 0) {
+        count ++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 计算锁的剩余有效期，扣除请求耗时和时钟漂移
+   * @param leaseMills 租期，单位毫秒
+   * @param start 请求开始时间
+   * @return 剩余有效期，单位毫秒
+   */
+  private static long validity(long leaseMills, long start) {
+    long drift = (long) (leaseMills * CLOCK_DRIFT_FACTOR) + 2;
+    return leaseMills - (System.currentTimeMillis() - start) - drift;
+  }
+
+  /**
+   * 默认单个节点的最长等待时间
+   */
+  public static final long DEFAULT_NODE_TIMEOUT_MILLS = 200;
+
+  /**
+   * 每个节点的请求线程数
+   */
+  private static final int THREADS_PER_NODE = 4;
+
+  /**
+   * 请求线程池的队列长度
+   */
+  private static final int QUEUE_CAPACITY = 1024;
+
+  /**
+   * 时钟漂移系数
+   */
+  private static final double CLOCK_DRIFT_FACTOR = 0.01;
+}
@@ -0,0 +1,89 @@
+package net.madtiger.lock.redis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 副本确认（WAIT）的耗时统计，用于评估开启副本确认的代价
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class RedisReplicaAckStats {
+
+  /**
+   * 等待次数
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * 确认数量不足的次数
+   */
+  private final LongAdder failures = new LongAdder();
+
+  /**
+   * 总耗时，单位纳秒
+   */
+  private final LongAdder totalNanos = new LongAdder();
+
+  /**
+   * 最长耗时，单位纳秒
+   */
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * 记录一次等待
+   * @param nanos 耗时，单位纳秒
+   * @param acknowledged 是否达到要求的副本数量
+   */
+  void record(long nanos, boolean acknowledged) {
+    count.increment();
+    totalNanos.add(nanos);
+    if (!acknowledged) {
+      failures.increment();
+    }
+    long max;
+    while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+      // 重试
+    }
+  }
+
+  /**
+   * 等待次数
+   * @return 次数
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * 确认数量不足的次数，这些获取已经回滚
+   * @return 次数
+   */
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  /**
+   * 平均耗时
+   * @return 平均耗时，单位微秒
+   */
+  public long getAverageMicros() {
+    long total = count.sum();
+    return total == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / total);
+  }
+
+  /**
+   * 最长耗时
+   * @return 最长耗时，单位微秒
+   */
+  public long getMaxMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d, failures=%d, avg=%dus, max=%dus", getCount(), getFailures(), getAverageMicros(), getMaxMicros());
+  }
+}
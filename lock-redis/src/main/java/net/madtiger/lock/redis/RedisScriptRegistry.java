@@ -0,0 +1,88 @@
+package net.madtiger.lock.redis;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+
+/**
+ * lua 脚本注册中心
+ * <p>
+ *   启动时通过 SCRIPT LOAD 预加载所有注册的脚本，之后只通过 EVALSHA 发送 sha1，
+ *   redis 重启或者 SCRIPT FLUSH 后返回 NOSCRIPT 时，自动重新加载并重试一次
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class RedisScriptRegistry {
+
+  /**
+   * 已注册的脚本
+   */
+  private final Set<RedisLockScript> scripts = ConcurrentHashMap.newKeySet();
+
+  /**
+   * 注册脚本
+   * @param scripts 脚本
+   */
+  public void register(RedisLockScript... scripts) {
+    for (RedisLockScript script : scripts) {
+      this.scripts.add(script);
+    }
+  }
+
+  /**
+   * 加载所有注册的脚本
+   * @param connection redis 连接
+   */
+  public void load(RedisConnection connection) {
+    for (RedisLockScript script : scripts) {
+      connection.scriptLoad(script.getSource());
+      log.debug("spring data redis -> 脚本 {} 加载成功", script);
+    }
+  }
+
+  /**
+   * 通过 EVALSHA 执行脚本 https://redis.io/commands/evalsha
+   * @param connection redis 连接
+   * @param script 脚本
+   * @param returnType 返回值类型
+   * @param numKeys key 数量
+   * @param keysAndArgs key 和参数
+   * @param <T> 返回值类型
+   * @return 执行结果
+   */
+  public <T> T eval(RedisConnection connection, RedisLockScript script, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+    try {
+      return connection.evalSha(script.getSha(), returnType, numKeys, keysAndArgs);
+    } catch (RuntimeException ex) {
+      if (!isNoScript(ex)) {
+        throw ex;
+      }
+      // 脚本缓存丢失，通过 EVAL 执行并加载，cluster 模式下 EVAL 和 key 路由到同一个节点
+      log.debug("spring data redis -> 脚本 {} 不存在，重新加载", script);
+      scripts.add(script);
+      return connection.eval(script.getSource(), returnType, numKeys, keysAndArgs);
+    }
+  }
+
+  /**
+   * 是否是 NOSCRIPT 异常
+   * @param ex 异常
+   * @return 结果
+   */
+  static boolean isNoScript(Throwable ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+        return true;
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,382 @@
+package net.madtiger.lock.redis;
+
+import static net.madtiger.lock.SharedLockConstants.UNKNOWN_HOLDER_TTL;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import net.madtiger.lock.CompositeSharedLock;
+import net.madtiger.lock.SharedLockEnvironment;
+import net.madtiger.lock.SharedLockOwnerToken;
+import net.madtiger.lock.exception.UnLockFailSharedLockException;
+import net.madtiger.lock.provider.ISharedLockProvider;
+
+/**
+ * 按 key 分片的 redis 共享锁服务
+ * <p>
+ *   多个独立的 redis 节点组成一致性哈希环，每个节点有若干虚拟节点，每个 key 只在一个节点上获取，锁的吞吐量随节点数量线性增长，
+ *   节点之间不需要多数派协议。所有实例必须使用相同的节点名称和虚拟节点数量，保证同一个 key 落在同一个节点。
+ * </p>
+ * <p>
+ *   通过 {@link #rebalance(Map, long)} 调整节点后进入排空期，排空期内归属发生变化的 key 需要同时获取新旧两个节点，
+ *   与还在使用旧哈希环的实例、以及调整前已持有锁的持有者互斥，排空期应不小于最长的持有时长。
+ *   新旧节点按从旧到新的固定顺序依次获取，所有实例顺序一致，竞争者在第一个节点上就分出胜负，不会各自持有一部分节点后全部失败，
+ *   代价是排空期内这些 key 的获取和释放耗时随节点数量成倍增加。
+ *   不同节点的 fencing token 计数器相互独立，key 迁移到新节点后不保证递增
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class RedisShardedLockProvider implements ISharedLockProvider {
+
+  /**
+   * 每个节点的虚拟节点数量
+   */
+  private final int virtualNodes;
+
+  /**
+   * 当前路由
+   */
+  private volatile Routing routing;
+
+  /**
+   * 构造函数
+   * @param shards 节点名称 -> redis 节点，名称用于计算哈希环，所有实例必须一致
+   */
+  public RedisShardedLockProvider(Map<String, RedisLockClient> shards) {
+    this(shards, DEFAULT_VIRTUAL_NODES);
+  }
+
+  /**
+   * 构造函数
+   * @param shards 节点名称 -> redis 节点，名称用于计算哈希环，所有实例必须一致
+   * @param virtualNodes 每个节点的虚拟节点数量
+   */
+  public RedisShardedLockProvider(Map<String, RedisLockClient> shards, int virtualNodes) {
+    if (virtualNodes <= 0) {
+      throw new IllegalArgumentException("虚拟节点数量必须大于 0");
+    }
+    this.virtualNodes = virtualNodes;
+    this.routing = new Routing(newRing(shards), Collections.emptyList());
+  }
+
+  /**
+   * 调整节点，排空期使用 {@link SharedLockEnvironment#lockSeconds()}
+   * @param shards 新的全部节点
+   */
+  public void rebalance(Map<String, RedisLockClient> shards) {
+    rebalance(shards, TimeUnit.SECONDS.toMillis(SharedLockEnvironment.getInstance().lockSeconds()));
+  }
+
+  /**
+   * 调整节点，排空期内归属变化的 key 同时获取新旧节点
+   * @param shards 新的全部节点
+   * @param drainMills 排空期，单位毫秒，应不小于最长的持有时长
+   */
+  public synchronized void rebalance(Map<String, RedisLockClient> shards, long drainMills) {
+    Ring ring = newRing(shards);
+    Routing current = routing;
+    // 之前的调整还在排空期时，更早的环中仍可能有持有者，一起保留
+    long now = System.currentTimeMillis();
+    List<Drain> drains = new ArrayList<>(current.drains.size() + 1);
+    for (Drain drain : current.drains) {
+      if (drain.until > now) {
+        drains.add(drain);
+      }
+    }
+    drains.add(new Drain(current.current, now + drainMills));
+    routing = new Routing(ring, drains);
+    log.info("spring data redis -> 分片锁节点调整为 {}，排空 {} 毫秒", shards.keySet(), drainMills);
+  }
+
+  @Override
+  public boolean doAcquire(CompositeSharedLock lock) {
+    String uuid = SharedLockOwnerToken.next();
+    // 先设置空的持有信息，获取失败后释放不会报错
+    lock.setProviderData(new Holding(uuid, Collections.emptyList()));
+    List<Shard> shards = routing.route(lock.getKey());
+    long leaseMills = TimeUnit.SECONDS.toMillis(lock.getLockSeconds());
+    List<Shard> acquired = new ArrayList<>(shards.size());
+    long fencingToken = 0;
+    // 依次获取，fencing token 以最后一个即当前环的节点为准
+    for (Shard shard : shards) {
+      long token = shard.client.acquireByLua(RedisLockProvider.ACQUIRE_SCRIPT, lock.getKey(), RedisLockProvider.fencingKey(shard.client, lock), uuid, leaseMills);
+      if (token <= 0) {
+        lock.setHolderTtlMills(token < 0 ? -token : UNKNOWN_HOLDER_TTL);
+        release(lock.getKey(), uuid, acquired);
+        return false;
+      }
+      acquired.add(shard);
+      fencingToken = token;
+    }
+    lock.setHolderTtlMills(UNKNOWN_HOLDER_TTL);
+    lock.setProviderData(new Holding(uuid, acquired));
+    lock.setFencingToken(RedisLockProvider.fencingToken(lock, fencingToken));
+    return true;
+  }
+
+  @Override
+  public boolean doAcquire(CompositeSharedLock lock, long time, TimeUnit unit) {
+    long stopTime = unit.toMillis(time) + System.currentTimeMillis();
+    do {
+      if (doAcquire(lock)) {
+        return true;
+      }
+      if (!isWorthWaiting(lock, stopTime - System.currentTimeMillis())) {
+        return false;
+      }
+      try {
+        awaitRelease(lock, (long) (200 + (int) 500 * Math.random()), stopTime - System.currentTimeMillis());
+      } catch (InterruptedException e) {
+        return false;
+      }
+    } while (System.currentTimeMillis() < stopTime);
+    return false;
+  }
+
+  @Override
+  public boolean doRelease(CompositeSharedLock lock) throws UnLockFailSharedLockException {
+    Object data = lock.getProviderData();
+    if (!(data instanceof Holding)) {
+      throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+    }
+    Holding holding = (Holding) data;
+    // 释放获取时的节点，不受之后节点调整的影响
+    return release(lock.getKey(), holding.uuid, holding.shards);
+  }
+
+  @Override
+  public boolean doExtend(CompositeSharedLock lock, long time, TimeUnit unit) {
+    Object data = lock.getProviderData();
+    if (!(data instanceof Holding)) {
+      return false;
+    }
+    Holding holding = (Holding) data;
+    List<String> keys = Collections.singletonList(lock.getKey());
+    List<String> args = Arrays.asList(holding.uuid, String.valueOf(unit.toMillis(time)));
+    boolean renewed = true;
+    for (Shard shard : holding.shards) {
+      List<Long> result = shard.client.renewByLua(RedisLockWatchdog.RENEW_SCRIPT, keys, args);
+      renewed = result != null && !result.isEmpty() && result.get(0) == 1L && renewed;
+    }
+    return renewed;
+  }
+
+  /**
+   * 查询 key 当前所在的节点名称
+   * @param key 锁 key
+   * @return 节点名称，排空期内归属变化的 key 返回新旧两个节点
+   */
+  public List<String> shardsOf(String key) {
+    List<Shard> shards = routing.route(key);
+    List<String> names = new ArrayList<>(shards.size());
+    for (Shard shard : shards) {
+      names.add(shard.name);
+    }
+    return names;
+  }
+
+  /**
+   * 释放多个节点上的锁
+   * @param key 锁 key
+   * @param uuid 持有者
+   * @param shards 节点
+   * @return 是否全部释放成功，没有持有任何节点时返回 false
+   */
+  private static boolean release(String key, String uuid, List<Shard> shards) {
+    boolean released = !shards.isEmpty();
+    for (Shard shard : shards) {
+      released = shard.client.releaseByLua(RedisLockProvider.RELEASE_SCRIPT, key, uuid) && released;
+    }
+    return released;
+  }
+
+  /**
+   * 创建哈希环
+   * @param shards 节点名称 -> redis 节点
+   * @return 哈希环
+   */
+  private Ring newRing(Map<String, RedisLockClient> shards) {
+    Objects.requireNonNull(shards);
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("至少需要一个 redis 节点");
+    }
+    TreeMap<Long, Shard> ring = new TreeMap<>();
+    // 按名称排序，虚拟节点哈希冲突时所有实例的结果一致
+    for (Map.Entry<String, RedisLockClient> entry : new TreeMap<>(shards).entrySet()) {
+      Shard shard = new Shard(entry.getKey(), entry.getValue());
+      entry.getValue().loadScripts(RedisLockProvider.ACQUIRE_SCRIPT, RedisLockProvider.RELEASE_SCRIPT, RedisLockWatchdog.RENEW_SCRIPT);
+      for (int i = 0; i < virtualNodes; i ++) {
+        ring.put(hash(shard.name + VIRTUAL_NODE_SEPARATOR + i), shard);
+      }
+    }
+    return new Ring(ring);
+  }
+
+  /**
+   * 64 位 FNV-1a 哈希，再经过 murmur3 的 fmix64 打散
+   * @param value 值
+   * @return 哈希值
+   */
+  static long hash(String value) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= FNV_PRIME;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * 节点
+   */
+  private static final class Shard {
+
+    final String name;
+
+    final RedisLockClient client;
+
+    Shard(String name, RedisLockClient client) {
+      Objects.requireNonNull(name);
+      Objects.requireNonNull(client);
+      this.name = name;
+      this.client = client;
+    }
+  }
+
+  /**
+   * 一致性哈希环
+   */
+  private static final class Ring {
+
+    final TreeMap<Long, Shard> nodes;
+
+    Ring(TreeMap<Long, Shard> nodes) {
+      this.nodes = nodes;
+    }
+
+    /**
+     * 顺时针找到第一个虚拟节点
+     * @param key 锁 key
+     * @return 节点
+     */
+    Shard locate(String key) {
+      Map.Entry<Long, Shard> entry = nodes.ceilingEntry(hash(key));
+      return (entry == null ? nodes.firstEntry() : entry).getValue();
+    }
+  }
+
+  /**
+   * 排空中的旧环
+   */
+  private static final class Drain {
+
+    final Ring ring;
+
+    /**
+     * 排空期结束时间
+     */
+    final long until;
+
+    Drain(Ring ring, long until) {
+      this.ring = ring;
+      this.until = until;
+    }
+  }
+
+  /**
+   * 路由，不可变，调整节点时整体替换
+   */
+  private static final class Routing {
+
+    final Ring current;
+
+    /**
+     * 排空中的旧环，从旧到新
+     */
+    final List<Drain> drains;
+
+    Routing(Ring current, List<Drain> drains) {
+      this.current = current;
+      this.drains = drains;
+    }
+
+    /**
+     * 计算 key 需要获取的节点，排空期内归属变化的 key 从旧到新依次获取所有节点
+     * @param key 锁 key
+     * @return 节点列表，最后一个是当前环的节点
+     */
+    List<Shard> route(String key) {
+      Shard shard = current.locate(key);
+      if (drains.isEmpty()) {
+        return Collections.singletonList(shard);
+      }
+      long now = System.currentTimeMillis();
+      Map<String, Shard> shards = new LinkedHashMap<>(drains.size() + 1);
+      for (Drain drain : drains) {
+        if (drain.until > now) {
+          Shard old = drain.ring.locate(key);
+          shards.putIfAbsent(old.name, old);
+        }
+      }
+      // 同名节点视为同一个节点，当前环的节点放在最后
+      shards.remove(shard.name);
+      if (shards.isEmpty()) {
+        return Collections.singletonList(shard);
+      }
+      List<Shard> route = new ArrayList<>(shards.values());
+      route.add(shard);
+      return route;
+    }
+  }
+
+  /**
+   * 持有信息，记录获取时的节点
+   */
+  private static final class Holding {
+
+    final String uuid;
+
+    final List<Shard> shards;
+
+    Holding(String uuid, List<Shard> shards) {
+      this.uuid = uuid;
+      this.shards = shards;
+    }
+  }
+
+  /**
+   * 默认每个节点的虚拟节点数量
+   */
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  /**
+   * 虚拟节点名称分隔符
+   */
+  private static final char VIRTUAL_NODE_SEPARATOR = '#';
+
+  /**
+   * FNV-1a 初始值
+   */
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  /**
+   * FNV-1a 乘数
+   */
+  private static final long FNV_PRIME = 0x100000001b3L;
+}
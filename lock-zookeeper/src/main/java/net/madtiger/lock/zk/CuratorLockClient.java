@@ -1,9 +1,29 @@
 package net.madtiger.lock.zk;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import net.madtiger.lock.ReadWriteMode;
+import net.madtiger.lock.SharedLockConstants;
 import net.madtiger.lock.capable.IProviderWritable;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.curator.framework.api.transaction.OperationType;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.framework.recipes.locks.StandardLockInternalsDriver;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
 import org.springframework.util.StringUtils;
 
 /**
@@ -18,15 +38,53 @@ public class CuratorLockClient{
    */
   private CuratorFramework lockClient;
 
+  /**
+   * 按锁节点复用的锁
+   */
+  private final InterProcessMutexCache mutexCache;
+
+  /**
+   * 使用过的命名空间，供 {@link ZookeeperLockReaper} 扫描
+   */
+  private final Set<String> namespaces = ConcurrentHashMap.newKeySet();
+
   /**
    * 初始化一个 zk 实例
    * @param lockClient zk 客户端
    */
   public CuratorLockClient(CuratorFramework lockClient){
+    this(lockClient, DEFAULT_MUTEX_CACHE_SIZE);
+  }
+
+  /**
+   * 初始化一个 zk 实例
+   * @param lockClient zk 客户端
+   * @param mutexCacheSize 复用锁的最大数量，只淘汰没有持有者和等待者的锁
+   */
+  public CuratorLockClient(CuratorFramework lockClient, int mutexCacheSize){
     this.lockClient = lockClient;
+    this.mutexCache = new InterProcessMutexCache(path -> new FencingInterProcessMutex(lockClient, path), mutexCacheSize);
   }
 
 
+  /**
+   * 服务端是否支持容器节点，支持时锁的父节点都是容器节点，没有子节点后由服务端自动删除
+   * @return 结果
+   */
+  public static boolean isContainerSupported() {
+    return ZKPaths.hasContainerSupport();
+  }
+
+  /**
+   * 创建一个清理器，扫描使用过的命名空间，删除空的锁父节点，不支持容器节点时使用，需要调用 {@link ZookeeperLockReaper#start(long)} 开始清理
+   * @param batchSize 每次调度最多访问的节点数
+   * @param deletesPerSecond 每秒最多删除的节点数
+   * @return 清理器
+   */
+  public ZookeeperLockReaper newReaper(int batchSize, int deletesPerSecond) {
+    return new ZookeeperLockReaper(lockClient, () -> new ArrayList<>(namespaces), batchSize, deletesPerSecond);
+  }
+
   /**
    * 尝试获取锁并
    * @param writable  结果持有者
@@ -37,11 +95,280 @@ public class CuratorLockClient{
    */
   public boolean tryAcquire(IProviderWritable writable, String key, long time, TimeUnit unit) throws Exception {
     // 获取 configurer
-    ZookeeperConfigurer configurer = writable.getProviderConfigurer() == null ? ZookeeperConfigurer.builder().build() : writable.getProviderConfigurer();
-    InterProcessMutex lock = new InterProcessMutex(lockClient, nodePath(configurer.getNamespace(), key));
+    ZookeeperConfigurer configurer = configurerOf(writable);
+    String path = nodePath(configurer, key);
+    if (configurer.isEphemeralEnabled()) {
+      return tryAcquireEphemeral(writable, path, unit.toMillis(time));
+    }
+    // 复用同一个锁节点的 recipe，引用计数在释放后减少
+    FencingInterProcessMutex lock = mutexCache.retain(path);
+    boolean acquired = false;
+    try {
+      acquired = lock.acquire(time, unit);
+    } finally {
+      if (!acquired) {
+        mutexCache.unretain(path);
+      }
+    }
+    if (!acquired) {
+      return false;
+    }
     // 将 lock holder 放到结果集中
     writable.setProviderData(lock);
-    return lock.acquire(time, unit);
+    writable.setFencingToken(lock.getFencingToken());
+    return true;
+  }
+
+  /**
+   * 通过创建非顺序临时节点获取锁，节点已存在时监听删除事件等待
+   * <p>
+   *   只尝试一次时只有一次 create 请求，节点的创建 zxid 全局单调递增，作为 fencing token
+   * </p>
+   * @param writable 结果持有者
+   * @param path 锁节点
+   * @param waitMills 最长等待时长，小于等于 0 时只尝试一次
+   * @return 获取结果
+   */
+  private boolean tryAcquireEphemeral(IProviderWritable writable, String path, long waitMills) throws Exception {
+    long stopTime = System.currentTimeMillis() + waitMills;
+    while (true) {
+      Stat stat = new Stat();
+      try {
+        lockClient.create().storingStatIn(stat).creatingParentContainersIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(path);
+        writable.setProviderData(new EphemeralNode(path, stat.getCzxid()));
+        writable.setFencingToken(stat.getCzxid());
+        return true;
+      } catch (KeeperException.NodeExistsException ex) {
+        // 已被持有
+      }
+      long remaining = stopTime - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      CountDownLatch latch = new CountDownLatch(1);
+      if (lockClient.checkExists().usingWatcher((Watcher) event -> latch.countDown()).forPath(path) != null) {
+        latch.await(remaining, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * 尝试获取读锁或写锁 {@link InterProcessReadWriteLock}，同一个 key 的读锁可以同时持有
+   * @param writable 结果持有者
+   * @param key 锁的key
+   * @param mode 模式
+   * @param time 时间
+   * @param unit 单位
+   * @return 获取结果
+   */
+  public boolean tryAcquire(IProviderWritable writable, String key, ReadWriteMode mode, long time, TimeUnit unit) throws Exception {
+    InterProcessReadWriteLock readWriteLock = new InterProcessReadWriteLock(lockClient, nodePath(configurerOf(writable), key));
+    InterProcessMutex lock = mode == ReadWriteMode.READ ? readWriteLock.readLock() : readWriteLock.writeLock();
+    if (!lock.acquire(time, unit)) {
+      return false;
+    }
+    writable.setProviderData(lock);
+    writable.setFencingToken(FencingInterProcessMutex.fencingToken(lockClient, lock));
+    return true;
+  }
+
+  /**
+   * 释放 {@link #tryAcquire(IProviderWritable, String, ReadWriteMode, long, TimeUnit)} 获取的读锁或写锁
+   * @param writable 结果持有者
+   * @return 释放结果
+   */
+  public boolean releaseReadWrite(IProviderWritable writable) {
+    Object data = writable.getProviderData();
+    if (!(data instanceof InterProcessMutex)) {
+      throw new IllegalArgumentException("当前的 holder 数据异常，请传入 tryLock 返回的 SharedLock ");
+    }
+    try{
+      ((InterProcessMutex) data).release();
+      return true;
+    }catch (Throwable ex) {
+      return false;
+    }
+  }
+
+  /**
+   * 尝试获取多个许可 {@link InterProcessSemaphoreV2}，同一个 key 的所有调用者必须使用相同的许可总数
+   * @param writable 结果持有者
+   * @param key 锁的key
+   * @param permits 本次获取的许可数量
+   * @param totalPermits 许可总数
+   * @param time 时间
+   * @param unit 单位
+   * @return 获取结果
+   */
+  public boolean tryAcquirePermits(IProviderWritable writable, String key, int permits, int totalPermits, long time, TimeUnit unit) throws Exception {
+    InterProcessSemaphoreV2 semaphore = new InterProcessSemaphoreV2(lockClient, nodePath(configurerOf(writable), key), totalPermits);
+    Collection<Lease> leases = semaphore.acquire(permits, time, unit);
+    if (leases == null) {
+      return false;
+    }
+    writable.setProviderData(leases);
+    // 许可节点中最大的 czxid
+    long token = SharedLockConstants.NO_FENCING_TOKEN;
+    for (Lease lease : leases) {
+      token = Math.max(token, FencingInterProcessMutex.fencingToken(lockClient, lease.getNodeName()));
+    }
+    writable.setFencingToken(token);
+    return true;
+  }
+
+  /**
+   * 释放 {@link #tryAcquirePermits(IProviderWritable, String, int, int, long, TimeUnit)} 获取的许可
+   * @param writable 结果持有者
+   * @return 释放结果
+   */
+  public boolean releasePermits(IProviderWritable writable) {
+    Object data = writable.getProviderData();
+    if (!(data instanceof Collection)) {
+      throw new IllegalArgumentException("当前的 holder 数据异常，请传入 tryLock 返回的 SharedLock ");
+    }
+    boolean released = true;
+    for (Object lease : (Collection<?>) data) {
+      try {
+        ((Lease) lease).close();
+      } catch (Throwable ex) {
+        released = false;
+      }
+    }
+    return released;
+  }
+
+  /**
+   * 获取剩余的许可数量
+   * @param writable 信号量对象
+   * @param key 锁的key
+   * @param totalPermits 许可总数
+   * @return 剩余数量
+   */
+  public int availablePermits(IProviderWritable writable, String key, int totalPermits) throws Exception {
+    InterProcessSemaphoreV2 semaphore = new InterProcessSemaphoreV2(lockClient, nodePath(configurerOf(writable), key), totalPermits);
+    return Math.max(0, totalPermits - semaphore.getParticipantNodes().size());
+  }
+
+  /**
+   * 尝试一次获取多个锁，所有顺序节点在一个事务中创建，任意一个不是最小节点则在一个事务中全部删除
+   * <p>
+   *   与 {@link InterProcessMutex} 使用相同的节点布局，可以和单 key 锁互斥，只尝试一次，不监听前序节点
+   * </p>
+   * @param writables 结果持有者，与 keys 一一对应
+   * @param keys 锁的key，调用方保证已排序
+   * @return 获取结果
+   */
+  public boolean tryAcquireAll(List<? extends IProviderWritable> writables, List<String> keys) throws Exception {
+    ZookeeperConfigurer configurer = configurerOf(writables.get(0));
+    List<String> parents = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      parents.add(nodePath(configurer, key));
+    }
+    List<String> nodes = createAll(parents);
+    boolean acquired = false;
+    try {
+      acquired = true;
+      for (int i = 0; acquired && i < nodes.size(); i ++) {
+        acquired = isLowest(parents.get(i), nodes.get(i));
+      }
+    } catch (Exception ex) {
+      acquired = false;
+      throw ex;
+    } finally {
+      // 存在其他持有者或等待者，全部回滚
+      if (!acquired) {
+        deleteAll(nodes);
+      }
+    }
+    if (!acquired) {
+      return false;
+    }
+    // 同一个事务创建的节点 czxid 相同，只查询一次
+    long token = FencingInterProcessMutex.fencingToken(lockClient, nodes.get(0));
+    for (int i = 0; i < nodes.size(); i ++) {
+      writables.get(i).setProviderData(nodes.get(i));
+      writables.get(i).setFencingToken(token);
+    }
+    return true;
+  }
+
+  /**
+   * 释放 {@link #tryAcquireAll(List, List)} 获取的多个锁
+   * @param writables 结果持有者
+   * @return 释放结果
+   */
+  public boolean releaseAll(List<? extends IProviderWritable> writables) {
+    List<String> nodes = new ArrayList<>(writables.size());
+    for (IProviderWritable writable : writables) {
+      Object node = writable.getProviderData();
+      if (!(node instanceof String)) {
+        throw new IllegalArgumentException("当前的 holder 数据异常，请传入 tryLock 返回的 SharedLock ");
+      }
+      nodes.add((String) node);
+    }
+    try {
+      deleteAll(nodes);
+      return true;
+    } catch (Throwable ex) {
+      return false;
+    }
+  }
+
+  /**
+   * 在一个事务中为每个锁节点创建临时顺序子节点，父节点不存在时创建后重试一次
+   * @param parents 锁节点
+   * @return 创建的顺序节点
+   */
+  private List<String> createAll(List<String> parents) throws Exception {
+    List<CuratorOp> ops = new ArrayList<>(parents.size());
+    for (String parent : parents) {
+      ops.add(lockClient.transactionOp().create().withMode(CreateMode.EPHEMERAL_SEQUENTIAL).forPath(ZKPaths.makePath(parent, FencingInterProcessMutex.LOCK_NAME)));
+    }
+    List<CuratorTransactionResult> results;
+    try {
+      results = lockClient.transaction().forOperations(ops);
+    } catch (KeeperException.NoNodeException ex) {
+      for (String parent : parents) {
+        lockClient.createContainers(parent);
+      }
+      results = lockClient.transaction().forOperations(ops);
+    }
+    List<String> nodes = new ArrayList<>(parents.size());
+    for (CuratorTransactionResult result : results) {
+      if (result.getType() == OperationType.CREATE) {
+        nodes.add(result.getResultPath());
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * 判断是否是锁节点下序号最小的节点
+   * @param parent 锁节点
+   * @param node 顺序节点
+   * @return 是否最小
+   */
+  private boolean isLowest(String parent, String node) throws Exception {
+    String name = ZKPaths.getNodeFromPath(node);
+    String sequence = StandardLockInternalsDriver.standardFixForSorting(name, FencingInterProcessMutex.LOCK_NAME);
+    for (String child : lockClient.getChildren().forPath(parent)) {
+      if (StandardLockInternalsDriver.standardFixForSorting(child, FencingInterProcessMutex.LOCK_NAME).compareTo(sequence) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 在一个事务中删除多个节点
+   * @param nodes 节点
+   */
+  private void deleteAll(List<String> nodes) throws Exception {
+    List<CuratorOp> ops = new ArrayList<>(nodes.size());
+    for (String node : nodes) {
+      ops.add(lockClient.transactionOp().delete().forPath(node));
+    }
+    lockClient.transaction().forOperations(ops);
   }
 
   /**
@@ -50,31 +377,116 @@ public class CuratorLockClient{
    * @return 释放结果
    */
   public boolean release(IProviderWritable writable) {
-    InterProcessMutex lock = (InterProcessMutex) writable.getProviderData();
-    if (lock == null || !(lock instanceof  InterProcessMutex)) {
+    Object data = writable.getProviderData();
+    if (data instanceof EphemeralNode) {
+      return releaseEphemeral((EphemeralNode) data);
+    }
+    if (!(data instanceof FencingInterProcessMutex)) {
       throw new IllegalArgumentException("当前的 holder 数据异常，请传入 tryLock 返回的 SharedLock ");
     }
+    FencingInterProcessMutex lock = (FencingInterProcessMutex) data;
     try{
       lock.release();
-      return true;
+    }catch (IllegalMonitorStateException ex) {
+      // 当前线程没有持有，没有对应的引用
+      return false;
     }catch (Throwable ex) {
+      // 删除节点失败时 curator 也已经不再认为当前线程持有
+      mutexCache.unretain(lock.getPath());
+      return false;
+    }
+    mutexCache.unretain(lock.getPath());
+    return true;
+  }
+
+
+  /**
+   * 释放临时节点模式的锁，只删除自己创建的节点，会话过期后节点可能已经被其他持有者重新创建
+   * @param node 获取时创建的节点
+   * @return 释放结果
+   */
+  private boolean releaseEphemeral(EphemeralNode node) {
+    try {
+      Stat stat = lockClient.checkExists().forPath(node.path);
+      if (stat == null || stat.getCzxid() != node.czxid) {
+        return false;
+      }
+      lockClient.delete().withVersion(stat.getVersion()).forPath(node.path);
+      return true;
+    } catch (Throwable ex) {
       return false;
     }
   }
 
+  /**
+   * 获取锁的配置，未设置时使用默认配置
+   * @param writable 结果持有者
+   * @return 配置
+   */
+  private static ZookeeperConfigurer configurerOf(IProviderWritable writable) {
+    return writable.getProviderConfigurer() == null ? ZookeeperConfigurer.builder().build() : writable.getProviderConfigurer();
+  }
 
   /**
-   * 生成 parent path
-   * @param namespace 命名空间
+   * 生成 parent path，开启分桶时在命名空间和 key 之间插入桶
+   * @param configurer 配置
    * @param key 锁定的key
    * @return
    */
-  private String nodePath(String namespace, String key){
-    return (StringUtils.isEmpty(namespace) ? DEFAULT_NAMESPACE : namespace) + (key.startsWith("/") ? key : "/" + key);
+  private String nodePath(ZookeeperConfigurer configurer, String key){
+    String namespace = StringUtils.isEmpty(configurer.getNamespace()) ? DEFAULT_NAMESPACE : configurer.getNamespace();
+    if (!namespaces.contains(namespace)) {
+      namespaces.add(namespace);
+    }
+    if (configurer.isSharded()) {
+      namespace = namespace + "/" + bucket(key, configurer.getShardCount());
+    }
+    return namespace + (key.startsWith("/") ? key : "/" + key);
+  }
+
+  /**
+   * 计算 key 所在的桶，{@link String#hashCode()} 的算法是固定的，所有实例结果一致
+   * @param key 锁定的key
+   * @param shardCount 分桶数量
+   * @return 桶名称，16 进制
+   */
+  static String bucket(String key, int shardCount) {
+    int hash = key.hashCode();
+    // 混合高位，key 通常只有末尾几个字符不同
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    return Integer.toHexString(Math.floorMod(hash, shardCount));
+  }
+
+  /**
+   * 临时节点模式持有的节点
+   */
+  private static final class EphemeralNode {
+
+    /**
+     * 锁节点
+     */
+    private final String path;
+
+    /**
+     * 创建节点的 zxid
+     */
+    private final long czxid;
+
+    private EphemeralNode(String path, long czxid) {
+      this.path = path;
+      this.czxid = czxid;
+    }
   }
 
   /**
    * 默认的 命名空间
    */
   private static final String DEFAULT_NAMESPACE = "/__SHARED_LOCK_NODE";
+
+  /**
+   * 默认复用锁的最大数量
+   */
+  public static final int DEFAULT_MUTEX_CACHE_SIZE = 1024;
 }
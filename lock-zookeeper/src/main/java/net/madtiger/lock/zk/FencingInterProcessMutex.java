@@ -0,0 +1,125 @@
+package net.madtiger.lock.zk;
+
+import java.lang.reflect.Method;
+import net.madtiger.lock.SharedLockConstants;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 支持 fencing token 的 InterProcessMutex，token 是当前线程持有的顺序节点的创建 zxid（czxid）
+ * <p>
+ *   顺序节点的序号来自父节点的 cversion，父节点被删除（容器节点自动清理或者 {@link ZookeeperLockReaper}）后从 0 重新开始，
+ *   不能作为 fencing token。czxid 在整个集群内单调递增，互斥锁、组合锁、读写锁、信号量的 token 可以相互比较，代价是获取成功后多一次 exists 请求
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+public class FencingInterProcessMutex extends InterProcessMutex {
+
+  /**
+   * zk 客户端
+   */
+  private final CuratorFramework client;
+
+  /**
+   * 锁节点
+   */
+  private final String path;
+
+  /**
+   * 创建一个锁
+   * @param client zk 客户端
+   * @param path 锁节点
+   */
+  public FencingInterProcessMutex(CuratorFramework client, String path) {
+    super(client, path);
+    this.client = client;
+    this.path = path;
+  }
+
+  /**
+   * 获取锁节点
+   * @return 锁节点
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * 获取当前线程持有的锁的 fencing token
+   * @return fencing token，未持有或者查询失败时返回 {@link SharedLockConstants#NO_FENCING_TOKEN}
+   */
+  public long getFencingToken() {
+    return fencingToken(client, getLockPath());
+  }
+
+  /**
+   * 获取当前线程持有的 curator 锁的 fencing token，用于读写锁等无法继承的 {@link InterProcessMutex}
+   * <p>
+   *   {@link InterProcessMutex#getLockPath()} 是 protected 方法，通过反射调用，失败时返回 {@link SharedLockConstants#NO_FENCING_TOKEN}
+   * </p>
+   * @param client zk 客户端
+   * @param mutex 当前线程已持有的锁
+   * @return fencing token
+   */
+  static long fencingToken(CuratorFramework client, InterProcessMutex mutex) {
+    if (mutex instanceof FencingInterProcessMutex) {
+      return ((FencingInterProcessMutex) mutex).getFencingToken();
+    }
+    if (LOCK_PATH == null) {
+      return SharedLockConstants.NO_FENCING_TOKEN;
+    }
+    try {
+      return fencingToken(client, (String) LOCK_PATH.invoke(mutex));
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return SharedLockConstants.NO_FENCING_TOKEN;
+    }
+  }
+
+  /**
+   * 查询已创建节点的 czxid 作为 fencing token
+   * @param client zk 客户端
+   * @param nodePath 节点路径
+   * @return fencing token，节点不存在或者查询失败时返回 {@link SharedLockConstants#NO_FENCING_TOKEN}
+   */
+  static long fencingToken(CuratorFramework client, String nodePath) {
+    if (nodePath == null) {
+      return SharedLockConstants.NO_FENCING_TOKEN;
+    }
+    try {
+      Stat stat = client.checkExists().forPath(nodePath);
+      return stat == null ? SharedLockConstants.NO_FENCING_TOKEN : stat.getCzxid();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return SharedLockConstants.NO_FENCING_TOKEN;
+    } catch (Exception ex) {
+      return SharedLockConstants.NO_FENCING_TOKEN;
+    }
+  }
+
+  /**
+   * {@link InterProcessMutex#getLockPath()}，无法访问时为 null
+   */
+  private static final Method LOCK_PATH = lockPathMethod();
+
+  /**
+   * 查找 {@link InterProcessMutex#getLockPath()}
+   * @return 方法，无法访问时返回 null
+   */
+  private static Method lockPathMethod() {
+    try {
+      Method method = InterProcessMutex.class.getDeclaredMethod("getLockPath");
+      method.setAccessible(true);
+      return method;
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * InterProcessMutex 顺序节点名称
+   */
+  static final String LOCK_NAME = "lock-";
+}
@@ -0,0 +1,119 @@
+package net.madtiger.lock.zk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 按锁节点缓存 {@link FencingInterProcessMutex}，热点 key 重复获取时复用 recipe 状态，同一个线程重复获取时使用 curator 自身的重入计数
+ * <p>
+ *   每个条目有引用计数，获取前加一，获取失败或者释放后减一，只淘汰没有持有者和等待者的条目。
+ *   超过上限时按最近使用时间淘汰空闲条目，全部条目都在使用时允许暂时超过上限
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+class InterProcessMutexCache {
+
+  /**
+   * 锁节点 -> 条目
+   */
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * 创建锁
+   */
+  private final Function<String, FencingInterProcessMutex> factory;
+
+  /**
+   * 最大条目数
+   */
+  private final int maxSize;
+
+  /**
+   * 构造函数
+   * @param factory 创建锁
+   * @param maxSize 最大条目数
+   */
+  InterProcessMutexCache(Function<String, FencingInterProcessMutex> factory, int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("锁缓存的最大条目数必须大于 0");
+    }
+    this.factory = factory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * 获取锁并增加引用计数，使用完必须调用 {@link #unretain(String)}
+   * @param path 锁节点
+   * @return 锁
+   */
+  FencingInterProcessMutex retain(String path) {
+    Entry entry = entries.compute(path, (key, current) -> {
+      Entry result = current == null ? new Entry(factory.apply(key)) : current;
+      result.refs ++;
+      result.lastUsed = System.nanoTime();
+      return result;
+    });
+    if (entries.size() > maxSize) {
+      evict();
+    }
+    return entry.mutex;
+  }
+
+  /**
+   * 减少引用计数
+   * @param path 锁节点
+   */
+  void unretain(String path) {
+    entries.computeIfPresent(path, (key, entry) -> {
+      entry.refs --;
+      return entry;
+    });
+  }
+
+  /**
+   * 当前条目数
+   * @return 条目数
+   */
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * 淘汰空闲条目，淘汰到上限的 3/4，避免每次获取都要扫描
+   */
+  private void evict() {
+    List<Map.Entry<String, Entry>> idle = new ArrayList<>();
+    for (Map.Entry<String, Entry> item : entries.entrySet()) {
+      if (item.getValue().refs == 0) {
+        idle.add(item);
+      }
+    }
+    idle.sort((a, b) -> Long.compare(a.getValue().lastUsed, b.getValue().lastUsed));
+    int target = maxSize - maxSize / 4;
+    for (int i = 0; i < idle.size() && entries.size() > target; i ++) {
+      // 在 compute 中再次检查，避免淘汰刚刚被获取的条目
+      entries.computeIfPresent(idle.get(i).getKey(), (key, entry) -> entry.refs == 0 ? null : entry);
+    }
+  }
+
+  /**
+   * 缓存条目，引用计数只在 map 的 compute 中修改
+   */
+  private static final class Entry {
+
+    private final FencingInterProcessMutex mutex;
+
+    private volatile int refs;
+
+    private volatile long lastUsed;
+
+    private Entry(FencingInterProcessMutex mutex) {
+      this.mutex = mutex;
+    }
+  }
+}
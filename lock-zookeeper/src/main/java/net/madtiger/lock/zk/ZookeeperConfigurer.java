@@ -20,12 +20,49 @@ public class ZookeeperConfigurer implements IProviderConfigurer<ZookeeperConfigu
    */
   private String namespace;
 
+  /**
+   * 是否开启临时节点模式，开启后每个锁是一个非顺序临时节点，创建成功即获取成功，节点已存在时只尝试一次的获取立即失败，
+   * 只需要一次写请求。节点和顺序节点模式的父节点是同一个路径，混用时仍然互斥，但是顺序节点模式留下的空父节点被回收前会被误判为已被持有，
+   * 同一个 key 应该始终使用同一种模式
+   */
+  private Boolean ephemeral;
+
+  /**
+   * 分桶数量，大于 0 时锁节点位于 命名空间/桶/key，桶由 key 的哈希决定，避免一个父节点下有上百万个子节点；
+   * 未设置时所有锁直接位于命名空间下。修改分桶数量会改变锁节点路径，所有实例必须同时修改
+   */
+  private Integer shardCount;
+
   @Override
   public void merge(ZookeeperConfigurer configurer) {
-    if (configurer == null || StringUtils.isEmpty(namespace)) {
+    if (configurer == null) {
       return;
     }
-    // 设置
-    this.namespace = configurer.getNamespace();
+    // 未设置的使用全局配置
+    if (StringUtils.isEmpty(namespace)) {
+      this.namespace = configurer.getNamespace();
+    }
+    if (ephemeral == null) {
+      this.ephemeral = configurer.getEphemeral();
+    }
+    if (shardCount == null) {
+      this.shardCount = configurer.getShardCount();
+    }
+  }
+
+  /**
+   * 是否开启临时节点模式
+   * @return 结果
+   */
+  public boolean isEphemeralEnabled() {
+    return Boolean.TRUE.equals(ephemeral);
+  }
+
+  /**
+   * 是否开启分桶
+   * @return 结果
+   */
+  public boolean isSharded() {
+    return shardCount != null && shardCount > 0;
   }
 }
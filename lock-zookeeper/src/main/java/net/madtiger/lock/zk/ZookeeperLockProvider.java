@@ -1,19 +1,23 @@
 package net.madtiger.lock.zk;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import net.madtiger.lock.CompositeSharedLock;
-import net.madtiger.lock.ISharedLock;
+import net.madtiger.lock.ReadWriteMode;
 import net.madtiger.lock.exception.UnLockFailSharedLockException;
-import net.madtiger.lock.provider.ISharedLockProvider;
+import net.madtiger.lock.provider.ISharedReadWriteLockProvider;
+import net.madtiger.lock.provider.ISharedSemaphoreProvider;
 
 /**
- * zookeeper 锁 服务类
+ * zookeeper 锁 服务类，读写锁基于 {@link org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock}，
+ * 信号量基于 {@link org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2}
  * @author Fenghu.Shi
  * @version 1.0
  */
 @Slf4j
-public class ZookeeperLockProvider implements ISharedLockProvider {
+public class ZookeeperLockProvider implements ISharedReadWriteLockProvider, ISharedSemaphoreProvider {
 
   private CuratorLockClient lockClient;
 
@@ -23,7 +27,9 @@ public class ZookeeperLockProvider implements ISharedLockProvider {
 
   @Override
   public boolean doAcquire(CompositeSharedLock lock) {
-    return doAcquire(lock, 300, TimeUnit.MILLISECONDS);
+    // 临时节点模式只尝试一次，一次写请求即可得到结果
+    ZookeeperConfigurer configurer = lock.getProviderConfigurer();
+    return doAcquire(lock, configurer != null && configurer.isEphemeralEnabled() ? 0 : ONCE_WAIT_MILLS, TimeUnit.MILLISECONDS);
   }
 
   @Override
@@ -35,8 +41,78 @@ public class ZookeeperLockProvider implements ISharedLockProvider {
     }
   }
 
+  @Override
+  public boolean doAcquireAll(List<CompositeSharedLock> locks) {
+    List<String> keys = new ArrayList<>(locks.size());
+    for (CompositeSharedLock lock : locks) {
+      keys.add(lock.getKey());
+    }
+    try {
+      return lockClient.tryAcquireAll(locks, keys);
+    } catch (Exception e) {
+      log.error("zookeeper -> 批量获取锁 {} 失败", keys, e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean doReleaseAll(List<CompositeSharedLock> locks) throws UnLockFailSharedLockException {
+    return lockClient.releaseAll(locks);
+  }
+
   @Override
   public boolean doRelease(CompositeSharedLock lock) throws UnLockFailSharedLockException {
     return lockClient.release(lock);
   }
+
+  @Override
+  public boolean doAcquire(CompositeSharedLock lock, ReadWriteMode mode) {
+    try {
+      return lockClient.tryAcquire(lock, lock.getKey(), mode, ONCE_WAIT_MILLS, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      log.error("zookeeper -> 获取{}锁 {} 失败", mode, lock.getKey(), e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean doRelease(CompositeSharedLock lock, ReadWriteMode mode) throws UnLockFailSharedLockException {
+    return lockClient.releaseReadWrite(lock);
+  }
+
+  @Override
+  public boolean doAcquirePermits(CompositeSharedLock lock, int permits, int totalPermits) {
+    try {
+      return lockClient.tryAcquirePermits(lock, lock.getKey(), permits, totalPermits, ONCE_WAIT_MILLS, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      log.error("zookeeper -> 获取信号量 {} 的 {} 个许可失败", lock.getKey(), permits, e);
+      return false;
+    }
+  }
+
+  @Override
+  public boolean doReleasePermits(CompositeSharedLock lock, int permits) throws UnLockFailSharedLockException {
+    return lockClient.releasePermits(lock);
+  }
+
+  @Override
+  public int availablePermits(CompositeSharedLock lock, int totalPermits) {
+    try {
+      return lockClient.availablePermits(lock, lock.getKey(), totalPermits);
+    } catch (Exception e) {
+      log.error("zookeeper -> 查询信号量 {} 剩余许可失败", lock.getKey(), e);
+      return 0;
+    }
+  }
+
+  @Override
+  public boolean isThreadBound() {
+    // curator 的锁只能由获取锁的线程释放
+    return true;
+  }
+
+  /**
+   * 只尝试一次时最多等待的时长，单位毫秒
+   */
+  private static final long ONCE_WAIT_MILLS = 300;
 }
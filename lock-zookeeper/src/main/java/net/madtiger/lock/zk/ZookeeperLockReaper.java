@@ -0,0 +1,214 @@
+package net.madtiger.lock.zk;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * 清理空的锁父节点
+ * <p>
+ *   zookeeper 3.5 以上的服务端会自动删除空的容器节点，锁的父节点都是容器节点，不需要清理。
+ *   不支持容器节点时父节点是持久节点，每个 key 留下一个，由清理器在后台扫描命名空间删除没有子节点的父节点。
+ *   每次调度最多访问 batchSize 个节点，删除按 deletesPerSecond 限速，一轮扫描分多次调度完成，避免给集群带来突发压力
+ * </p>
+ * <p>
+ *   删除不会影响正在获取的锁：有子节点时删除失败，父节点被删除后 curator 创建锁节点时会重新创建父节点。
+ *   刚创建的父节点不删除，避免和正在创建子节点的获取者竞争
+ * </p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.1
+ */
+@Slf4j
+public class ZookeeperLockReaper implements Closeable {
+
+  /**
+   * 共用的调度线程
+   */
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "shared-lock-zookeeper-reaper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * zk 客户端
+   */
+  private final CuratorFramework client;
+
+  /**
+   * 需要清理的命名空间
+   */
+  private final Supplier<Collection<String>> roots;
+
+  /**
+   * 每次调度最多访问的节点数
+   */
+  private final int batchSize;
+
+  /**
+   * 每秒最多删除的节点数
+   */
+  private final int deletesPerSecond;
+
+  /**
+   * 本轮扫描待访问的节点，只在调度线程中访问
+   */
+  private final Deque<String> pending = new ArrayDeque<>();
+
+  /**
+   * 调度任务
+   */
+  private volatile ScheduledFuture<?> future;
+
+  /**
+   * 创建一个清理器
+   * @param client zk 客户端
+   * @param roots 需要清理的命名空间，每轮扫描开始时获取
+   * @param batchSize 每次调度最多访问的节点数
+   * @param deletesPerSecond 每秒最多删除的节点数
+   */
+  public ZookeeperLockReaper(CuratorFramework client, Supplier<Collection<String>> roots, int batchSize, int deletesPerSecond) {
+    Objects.requireNonNull(client);
+    Objects.requireNonNull(roots);
+    if (batchSize <= 0 || deletesPerSecond <= 0) {
+      throw new IllegalArgumentException("清理批次大小和删除速率必须大于 0");
+    }
+    this.client = client;
+    this.roots = roots;
+    this.batchSize = batchSize;
+    this.deletesPerSecond = deletesPerSecond;
+  }
+
+  /**
+   * 开始定时清理，重复调用无效
+   * @param intervalMills 调度间隔，单位毫秒
+   */
+  public synchronized void start(long intervalMills) {
+    if (future == null) {
+      future = SCHEDULER.scheduleWithFixedDelay(this::reapSafely, intervalMills, intervalMills, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (future != null) {
+      future.cancel(false);
+      future = null;
+    }
+  }
+
+  /**
+   * 执行一次调度，异常不影响后续调度
+   */
+  private void reapSafely() {
+    try {
+      reap();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.warn("zookeeper -> 清理空的锁节点失败", e);
+    }
+  }
+
+  /**
+   * 访问一批节点，本轮扫描完成后从命名空间重新开始
+   * @return 删除的节点数
+   */
+  int reap() throws Exception {
+    int visited = 0;
+    int deleted = 0;
+    if (pending.isEmpty()) {
+      for (String root : roots.get()) {
+        visited ++;
+        enqueueChildren(root);
+      }
+    }
+    long pause = Math.max(1, 1000 / deletesPerSecond);
+    String path;
+    while (visited < batchSize && (path = pending.poll()) != null) {
+      visited ++;
+      Stat stat = client.checkExists().forPath(path);
+      // 临时节点模式的锁随会话删除
+      if (stat == null || stat.getEphemeralOwner() != 0) {
+        continue;
+      }
+      if (stat.getNumChildren() > 0) {
+        visited ++;
+        enqueueChildren(path);
+        continue;
+      }
+      if (System.currentTimeMillis() - stat.getCtime() < MIN_AGE_MILLS) {
+        continue;
+      }
+      try {
+        client.delete().withVersion(stat.getVersion()).forPath(path);
+        deleted ++;
+      } catch (KeeperException.NotEmptyException | KeeperException.NoNodeException | KeeperException.BadVersionException e) {
+        // 期间被使用或者被删除
+      }
+      Thread.sleep(pause);
+    }
+    if (deleted > 0) {
+      log.debug("zookeeper -> 清理了 {} 个空的锁节点，本轮剩余 {} 个待访问", deleted, pending.size());
+    }
+    return deleted;
+  }
+
+  /**
+   * 把子节点加入待访问队列，锁的顺序节点是临时节点，跳过
+   * @param path 节点
+   */
+  private void enqueueChildren(String path) throws Exception {
+    List<String> children;
+    try {
+      children = client.getChildren().forPath(path);
+    } catch (KeeperException.NoNodeException e) {
+      return;
+    }
+    for (String child : children) {
+      if (!LOCK_NODE.matcher(child).matches()) {
+        pending.add(ZKPaths.makePath(path, child));
+      }
+    }
+  }
+
+  /**
+   * 锁的顺序节点名称，curator 创建的带有保护前缀
+   */
+  private static final Pattern LOCK_NODE = Pattern.compile(".*" + FencingInterProcessMutex.LOCK_NAME + "\\d{10}");
+
+  /**
+   * 创建后多久才允许删除，单位毫秒
+   */
+  private static final long MIN_AGE_MILLS = 60000;
+
+  /**
+   * 默认调度间隔，单位毫秒
+   */
+  public static final long DEFAULT_INTERVAL_MILLS = 1000;
+
+  /**
+   * 默认每次调度最多访问的节点数
+   */
+  public static final int DEFAULT_BATCH_SIZE = 200;
+
+  /**
+   * 默认每秒最多删除的节点数
+   */
+  public static final int DEFAULT_DELETES_PER_SECOND = 100;
+}